@@ -0,0 +1,85 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.BenchmarkData.consume;
+import static fi.solita.utils.functional.BenchmarkData.int2long;
+import static fi.solita.utils.functional.BenchmarkData.mod100;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations that have to look at the whole input before producing results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final Function2<Long,Integer,Long> addInt = new Function2<Long,Integer,Long>() {
+        @Override
+        public final Long apply(Long acc, Integer x) {
+            return acc + x;
+        }
+    };
+
+    @Benchmark
+    public void sort(BenchmarkData d, Blackhole bh) {
+        consume(Functional.sort(d.xs), bh);
+    }
+
+    @Benchmark
+    public List<Integer> sortForced(BenchmarkData d) {
+        return Collections.newList(Functional.sort(d.xs));
+    }
+
+    @Benchmark
+    public void top20(BenchmarkData d, Blackhole bh) {
+        consume(Functional.take(20, Functional.sort(d.xs)), bh);
+    }
+
+    @Benchmark
+    public void grouped1000(BenchmarkData d, Blackhole bh) {
+        consume(Functional.grouped(1000, d.xs), bh);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupBy(BenchmarkData d) {
+        return FunctionalM.groupBy(mod100, d.xs);
+    }
+
+    @Benchmark
+    public void distinct(BenchmarkData d, Blackhole bh) {
+        consume(Functional.distinct(d.xs), bh);
+    }
+
+    @Benchmark
+    public Long fold(BenchmarkData d) {
+        return Functional.fold(0l, addInt, d.xs);
+    }
+
+    @Benchmark
+    public Long reduceLongSum(BenchmarkData d) {
+        return Functional.reduce(Monoids.longSum, Functional.map(int2long, d.xs));
+    }
+
+    @Benchmark
+    public long handWrittenSum(BenchmarkData d) {
+        long ret = 0;
+        for (Integer x: d.xs) {
+            ret += x;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,192 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.BenchmarkData.consume;
+import static fi.solita.utils.functional.BenchmarkData.even;
+import static fi.solita.utils.functional.BenchmarkData.mod100;
+import static fi.solita.utils.functional.BenchmarkData.plusOne;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The same operations over arrays through <code>FunctionalA</code> and <code>FunctionalS</code>,
+ * including the cost of adapting the array.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ArrayData {
+        @Param({"10", "10000", "10000000"})
+        public int size;
+
+        public Integer[] boxed;
+        public int[] ints;
+        public long[] longs;
+        public double[] doubles;
+
+        @Setup
+        public void setup() {
+            boxed = new Integer[size];
+            ints = new int[size];
+            longs = new long[size];
+            doubles = new double[size];
+            for (int i = 0; i < size; ++i) {
+                ints[i] = (int)((i * 2654435761L) % (size / 2 + 1));
+                longs[i] = ints[i];
+                doubles[i] = ints[i] / 3.0;
+                boxed[i] = ints[i];
+            }
+        }
+    }
+
+    @Benchmark
+    public void map(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.map(plusOne, d.boxed), bh);
+    }
+
+    @Benchmark
+    public void filter(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.filter(even, d.boxed), bh);
+    }
+
+    @Benchmark
+    public void take(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.take(d.size / 2, d.boxed), bh);
+    }
+
+    @Benchmark
+    public void drop(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.drop(d.size / 2, d.boxed), bh);
+    }
+
+    @Benchmark
+    public void zip(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.zip(d.boxed, d.boxed), bh);
+    }
+
+    @Benchmark
+    public void sort(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.sort(d.boxed), bh);
+    }
+
+    @Benchmark
+    public void distinct(ArrayData d, Blackhole bh) {
+        consume(FunctionalA.distinct(d.boxed), bh);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupBy(ArrayData d) {
+        return FunctionalA.groupBy(mod100, d.boxed);
+    }
+
+    @Benchmark
+    public long sumInts(ArrayData d) {
+        return FunctionalS.sum(d.ints);
+    }
+
+    @Benchmark
+    public long sumLongs(ArrayData d) {
+        return FunctionalS.sum(d.longs);
+    }
+
+    @Benchmark
+    public long handWrittenSumLongs(ArrayData d) {
+        long ret = 0;
+        for (long x: d.longs) {
+            ret += x;
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public long handWrittenSumInts(ArrayData d) {
+        long ret = 0;
+        for (int x: d.ints) {
+            ret += x;
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public Option<Integer> maxInts(ArrayData d) {
+        return FunctionalS.max(d.ints);
+    }
+
+    @Benchmark
+    public int handWrittenMaxInts(ArrayData d) {
+        int ret = Integer.MIN_VALUE;
+        for (int x: d.ints) {
+            ret = Math.max(ret, x);
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public long dotLongs(ArrayData d) {
+        return FunctionalS.dot(d.longs, d.longs);
+    }
+
+    @Benchmark
+    public long handWrittenDotLongs(ArrayData d) {
+        long ret = 0;
+        for (int i = 0; i < d.longs.length; ++i) {
+            ret += d.longs[i] * d.longs[i];
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public double dotDoubles(ArrayData d) {
+        return FunctionalS.dot(d.doubles, d.doubles);
+    }
+
+    @Benchmark
+    public double handWrittenDotDoubles(ArrayData d) {
+        double ret = 0;
+        for (int i = 0; i < d.doubles.length; ++i) {
+            ret += d.doubles[i] * d.doubles[i];
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public int[] filterInts(ArrayData d) {
+        return FunctionalS.filter(BenchmarkData.evenInt, d.ints);
+    }
+
+    @Benchmark
+    public int[] handWrittenFilterInts(ArrayData d) {
+        int[] ret = new int[d.ints.length];
+        int n = 0;
+        for (int x: d.ints) {
+            if (x % 2 == 0) {
+                ret[n++] = x;
+            }
+        }
+        return java.util.Arrays.copyOf(ret, n);
+    }
+
+    @Benchmark
+    public List<Long> newListOfLongs(ArrayData d) {
+        return Collections.newList(d.longs);
+    }
+}
@@ -0,0 +1,107 @@
+package fi.solita.utils.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Input data shared by the benchmarks.
+ *
+ * <i>source</i> selects what the pipelines are built on:
+ * <ul>
+ * <li><i>list</i>: an <code>ArrayList</code></li>
+ * <li><i>range</i>: an <code>IntIterable</code> from <code>FunctionalS.range(int,int)</code></li>
+ * <li><i>chain</i>: the list behind a few pass-through <code>Iterables</code> wrappers,
+ *                   to see what the wrappers themselves cost</li>
+ * </ul>
+ * Arrays go through <code>FunctionalA</code> and are benchmarked separately in {@link ArrayBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+    @Param({"10", "10000", "10000000"})
+    public int size;
+
+    @Param({"list", "range", "chain"})
+    public String source;
+
+    public List<Integer> list;
+    public Integer[] array;
+    public Iterable<Integer> xs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        list = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; ++i) {
+            // some duplicates and a non-sorted order for sort, distinct and groupBy
+            list.add((int)((i * 2654435761L) % (size / 2 + 1)));
+        }
+        array = list.toArray(new Integer[size]);
+
+        if (source.equals("list")) {
+            xs = list;
+        } else if (source.equals("range")) {
+            xs = FunctionalS.range(0, size - 1);
+        } else if (source.equals("chain")) {
+            xs = Functional.map(Function.<Integer>id(), Functional.filter(everything, Functional.map(Function.<Integer>id(), list)));
+        } else {
+            throw new IllegalArgumentException(source);
+        }
+    }
+
+    static final void consume(Iterable<?> xs, Blackhole bh) {
+        for (Object x: xs) {
+            bh.consume(x);
+        }
+    }
+
+    static final Transformer<Integer,Integer> plusOne = new Transformer<Integer,Integer>() {
+        @Override
+        public final Integer transform(Integer source) {
+            return source + 1;
+        }
+    };
+
+    static final Predicate<Integer> everything = new Predicate<Integer>() {
+        @Override
+        public final boolean accept(Integer candidate) {
+            return true;
+        }
+    };
+
+    static final Predicate<Integer> even = Predicates.even;
+
+    static final IntIterable.IntPredicate evenInt = new IntIterable.IntPredicate() {
+        public final boolean accept(int candidate) {
+            return candidate % 2 == 0;
+        }
+    };
+
+    static final Predicate<Integer> notDivisibleBy3 = new Predicate<Integer>() {
+        @Override
+        public final boolean accept(Integer candidate) {
+            return candidate % 3 != 0;
+        }
+    };
+
+    static final Transformer<Integer,Integer> mod100 = new Transformer<Integer,Integer>() {
+        @Override
+        public final Integer transform(Integer source) {
+            return source % 100;
+        }
+    };
+
+    static final Transformer<Integer,Iterable<Integer>> twice = new Transformer<Integer,Iterable<Integer>>() {
+        @Override
+        public final Iterable<Integer> transform(Integer source) {
+            return Collections.newList(source, source);
+        }
+    };
+
+    static final Transformer<Integer,Long> int2long = Transformers.int2long;
+}
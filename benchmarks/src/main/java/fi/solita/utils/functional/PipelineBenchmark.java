@@ -0,0 +1,107 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.BenchmarkData.consume;
+import static fi.solita.utils.functional.BenchmarkData.even;
+import static fi.solita.utils.functional.BenchmarkData.notDivisibleBy3;
+import static fi.solita.utils.functional.BenchmarkData.plusOne;
+import static fi.solita.utils.functional.BenchmarkData.twice;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lazy element-wise operations, fully consumed. <i>handWritten*</i> are the baselines
+ * a pipeline should be compared against.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Benchmark
+    public void iterate(BenchmarkData d, Blackhole bh) {
+        consume(d.xs, bh);
+    }
+
+    @Benchmark
+    public void map(BenchmarkData d, Blackhole bh) {
+        consume(Functional.map(plusOne, d.xs), bh);
+    }
+
+    @Benchmark
+    public void filter(BenchmarkData d, Blackhole bh) {
+        consume(Functional.filter(even, d.xs), bh);
+    }
+
+    @Benchmark
+    public void flatMap(BenchmarkData d, Blackhole bh) {
+        consume(Functional.flatMap(twice, d.xs), bh);
+    }
+
+    @Benchmark
+    public void takeHalf(BenchmarkData d, Blackhole bh) {
+        consume(Functional.take(d.size / 2, d.xs), bh);
+    }
+
+    @Benchmark
+    public void dropHalf(BenchmarkData d, Blackhole bh) {
+        consume(Functional.drop(d.size / 2, d.xs), bh);
+    }
+
+    @Benchmark
+    public void zip(BenchmarkData d, Blackhole bh) {
+        consume(Functional.zip(d.xs, d.xs), bh);
+    }
+
+    @Benchmark
+    public void mapFilter(BenchmarkData d, Blackhole bh) {
+        consume(Functional.filter(even, Functional.map(plusOne, d.xs)), bh);
+    }
+
+    @Benchmark
+    public void handWrittenMapFilter(BenchmarkData d, Blackhole bh) {
+        for (Integer x: d.xs) {
+            Integer y = x + 1;
+            if (y % 2 == 0) {
+                bh.consume(y);
+            }
+        }
+    }
+
+    /**
+     * A deep chain of the kind that is common in application code.
+     */
+    @Benchmark
+    public void chainOf7(BenchmarkData d, Blackhole bh) {
+        consume(Functional.take(d.size, Functional.map(plusOne, Functional.filter(notDivisibleBy3, Functional.map(plusOne, Functional.takeWhile(BenchmarkData.everything, Functional.filter(even, Functional.map(plusOne, d.xs))))))), bh);
+    }
+
+    @Benchmark
+    public void handWrittenChainOf7(BenchmarkData d, Blackhole bh) {
+        int taken = 0;
+        for (Integer x: d.xs) {
+            Integer a = x + 1;
+            if (a % 2 != 0) {
+                continue;
+            }
+            Integer b = a + 1;
+            if (b % 3 == 0) {
+                continue;
+            }
+            if (taken++ == d.size) {
+                break;
+            }
+            bh.consume(b + 1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fi.solita.utils.functional;
+
+/**
+ * Approximate set of 64-bit fingerprints. Never gives false negatives, and gives false positives
+ * with about the requested probability as long as at most <i>expectedSize</i> elements have been added.
+ */
+final class BloomFilter {
+    private final long[] bits;
+    private final long numberOfBits;
+    private final int numberOfHashes;
+    
+    public BloomFilter(long expectedSize, double falsePositiveProbability) {
+        if (expectedSize < 1 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException();
+        }
+        double ln2 = Math.log(2);
+        long m = Math.max(64, (long)Math.ceil(-expectedSize * Math.log(falsePositiveProbability) / (ln2 * ln2)));
+        this.bits = new long[(int)Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64)];
+        this.numberOfBits = bits.length * 64l;
+        this.numberOfHashes = (int)Math.max(1, Math.round((double)numberOfBits / expectedSize * ln2));
+    }
+    
+    /**
+     * @return whether <i>fingerprint</i> was (probably) not yet in the filter.
+     */
+    public final boolean add(long fingerprint) {
+        // double hashing: k indices from two independent hashes
+        long h1 = mix(fingerprint);
+        long h2 = mix(h1) | 1;
+        boolean added = false;
+        for (int i = 0; i < numberOfHashes; ++i) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % numberOfBits;
+            int word = (int)(index >>> 6);
+            long mask = 1l << index;
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                added = true;
+            }
+        }
+        return added;
+    }
+    
+    private static final long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdl;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53l;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -1,8 +1,6 @@
 package fi.solita.utils.functional;
 
 import static fi.solita.utils.functional.Collections.newArray;
-import static fi.solita.utils.functional.Collections.newList;
-import static fi.solita.utils.functional.Functional.cons;
 import static fi.solita.utils.functional.FunctionalImpl.map;
 import static fi.solita.utils.functional.Option.None;
 
@@ -10,7 +8,6 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 public final class Builder<T> {
@@ -21,11 +18,11 @@ public final class Builder<T> {
     }
 
     private final Collection<? extends Apply<? super T,? extends Object>> members;
-    private final Iterable<Pair<? extends Apply<? super T, ? extends Object>, ? extends Object>> values;
+    private final PersistentMap<Apply<? super T, ? extends Object>, Object> values;
     private final Apply<Tuple, T> constructor;
 
     @SuppressWarnings("unchecked")
-    private Builder(Iterable<Pair<? extends Apply<? super T,? extends Object>,? extends Object>> values, Collection<? extends Apply<? super T, ? extends Object>> members, Apply<? extends Tuple, T> constructor) {
+    private Builder(PersistentMap<Apply<? super T,? extends Object>,Object> values, Collection<? extends Apply<? super T, ? extends Object>> members, Apply<? extends Tuple, T> constructor) {
         this.members = members;
         this.values = values;
         this.constructor = (Apply<Tuple, T>) constructor;
@@ -33,7 +30,7 @@ public final class Builder<T> {
     
     @SuppressWarnings("unchecked")
     private static <T> Builder<T> newBuilder(Collection<? extends Apply<? super T, ? extends Object>> members, Apply<?, T> constructor) {
-        return new Builder<T>(Collections.<Pair<? extends Apply<? super T, ? extends Object>,? extends Object>>emptyList(), members, (Apply<? extends Tuple, T>) constructor);
+        return new Builder<T>(PersistentMap.<Apply<? super T,? extends Object>,Object>empty(), members, (Apply<? extends Tuple, T>) constructor);
     }
     
     public Collection<? extends Apply<? super T, ? extends Object>> getMembers() {
@@ -41,24 +38,21 @@ public final class Builder<T> {
     }
 
     public final Builder<T> init(final T t) {
-        List<Pair<? extends Apply<? super T, ? extends Object>, ? extends Object>> newValues = newList(map(new Transformer<Apply<? super T,? extends Object>, Pair<? extends Apply<? super T,? extends Object>,? extends Object>>() {
-            @SuppressWarnings("unchecked")
-            @Override
-            public Pair<? extends Apply<? super T,? extends Object>,? extends Object> transform(Apply<? super T,? extends Object> source) {
-                return (Pair<Apply<? super T,? extends Object>,Object>)(Object)Pair.of(source, source.apply(t));
-            }
-        }, members));
-        return new Builder<T>(newValues, members, constructor);
+        PersistentMap.Transient<Apply<? super T,? extends Object>,Object> newValues = PersistentMap.<Apply<? super T,? extends Object>,Object>empty().asTransient();
+        for (Apply<? super T,? extends Object> member: members) {
+            newValues.put(member, member.apply(t));
+        }
+        return new Builder<T>(newValues.persistent(), members, constructor);
     }
 
     public final <F1> Builder<T> with(Apply<? super T,? super F1> member, F1 newValue) {
         checkMember(member);
-        return new Builder<T>(cons(Pair.of(member, newValue), values), members, constructor);
+        return new Builder<T>(values.with(member, newValue), members, constructor);
     }
     
     public final Builder<T> without(Apply<T,? extends Option<?>> member) {
         checkMember(member);
-        return new Builder<T>(cons(Pair.of(member, None()), values), members, constructor);
+        return new Builder<T>(values.with(member, None()), members, constructor);
     }
 
     private void checkMember(Apply<? super T, ?> member) {
@@ -82,10 +76,8 @@ public final class Builder<T> {
         return constructor.apply(Tuple.of(newArray(Object.class, map(new Transformer<Apply<? super T,? extends Object>,Object>() {
             @Override
             public Object transform(Apply<? super T, ? extends Object> member) {
-                for (Pair<? extends Apply<? super T, ? extends Object>, ? extends Object> o: values) {
-                    if (o.left.equals(member)) {
-                        return o.right;
-                    }
+                if (values.containsKey(member)) {
+                    return values.get(member);
                 }
                 if (!allowIncomplete) {
                     // substitutes Options automatically as None if a complete instance is required
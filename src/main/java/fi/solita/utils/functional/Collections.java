@@ -115,36 +115,130 @@ public abstract class Collections {
         return new ArrayList<T>((int)initialSize);
     }
     
+    public static final IntSet newIntSet() {
+        return new IntSet();
+    }
+    
+    public static final IntSet newIntSetOfSize(long expectedSize) {
+        return new IntSet(expectedSize);
+    }
+    
+    public static final LongSet newLongSet() {
+        return new LongSet();
+    }
+    
+    public static final LongSet newLongSetOfSize(long expectedSize) {
+        return new LongSet(expectedSize);
+    }
+    
+    public static final <V> LongMap<V> newLongMap() {
+        return new LongMap<V>();
+    }
+    
+    public static final <V> LongMap<V> newLongMapOfSize(long expectedSize) {
+        return new LongMap<V>(expectedSize);
+    }
+    
+    public static final IntIntMap newIntIntMap() {
+        return new IntIntMap();
+    }
+    
+    public static final IntIntMap newIntIntMapOfSize(long expectedSize) {
+        return new IntIntMap(expectedSize);
+    }
+    
+    public static final LongLongMap newLongLongMap() {
+        return new LongLongMap();
+    }
+    
+    public static final LongLongMap newLongLongMapOfSize(long expectedSize) {
+        return new LongLongMap(expectedSize);
+    }
+
+    public static final <K,V> PersistentMap<K,V> newPersistentMap() {
+        return PersistentMap.empty();
+    }
+
+    public static final <K,V> PersistentMap<K,V> newPersistentMap(Iterable<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return entries == null ? null : PersistentMap.<K,V>of(entries);
+    }
+
+    public static final <T> PersistentSet<T> newPersistentSet() {
+        return PersistentSet.empty();
+    }
+
+    public static final <T> PersistentSet<T> newPersistentSet(Iterable<? extends T> elements) {
+        return elements == null ? null : PersistentSet.<T>of(elements);
+    }
+
+    public static final <T> PersistentVector<T> newPersistentVector() {
+        return PersistentVector.empty();
+    }
+
+    public static final <T> PersistentVector<T> newPersistentVector(Iterable<? extends T> elements) {
+        return elements == null ? null : PersistentVector.<T>of(elements);
+    }
+
     public static final List<Boolean> newList(boolean[] array) {
-        return newList(newArray(array));
+        return array == null ? null : new Iterables.BoxingArrayList<Boolean>(array.clone());
     }
     
     public static final List<Byte> newList(byte[] array) {
-        return newList(newArray(array));
+        return array == null ? null : new Iterables.BoxingArrayList<Byte>(array.clone());
     }
     
     public static final List<Character> newList(char[] array) {
-        return newList(newArray(array));
+        return array == null ? null : new Iterables.BoxingArrayList<Character>(array.clone());
     }
     
+    /**
+     * @return an immutable copy of <i>array</i>, boxing elements only as they are read.
+     */
     public static final List<Double> newList(double[] array) {
-        return newList(newArray(array));
+        return newDoubleList(array);
+    }
+    
+    /**
+     * Same as <i>newList</i>, with primitive accessors.
+     */
+    public static final DoubleList newDoubleList(double[] array) {
+        return array == null ? null : new DoubleList(array.clone());
     }
     
     public static final List<Float> newList(float[] array) {
-        return newList(newArray(array));
+        return array == null ? null : new Iterables.BoxingArrayList<Float>(array.clone());
     }
 
+    /**
+     * @return an immutable copy of <i>array</i>, boxing elements only as they are read.
+     */
     public static final List<Integer> newList(int[] array) {
-        return newList(newArray(array));
+        return newIntList(array);
     }
     
+    /**
+     * Same as <i>newList</i>, with primitive accessors.
+     */
+    public static final IntList newIntList(int[] array) {
+        return array == null ? null : new IntList(array.clone());
+    }
+    
+    /**
+     * @return an immutable copy of <i>array</i>, boxing elements only as they are read.
+     */
     public static final List<Long> newList(long[] array) {
-        return newList(newArray(array));
+        return newLongList(array);
+    }
+    
+    /**
+     * Same as <i>newList</i>, with primitive accessors.
+     */
+    public static final LongList newLongList(long[] array) {
+        return array == null ? null : new LongList(array.clone());
     }
     
     public static final List<Short> newList(short[] array) {
-        return newList(newArray(array));
+        return array == null ? null : new Iterables.BoxingArrayList<Short>(array.clone());
     }
     
     public static final <T> List<T> newList(T[] elements) {
@@ -281,35 +375,49 @@ public abstract class Collections {
     }
     
     public static final Set<Boolean> newSet(boolean[] array) {
-        return newSet(newArray(array));
+        return array == null ? null : newSet(new Iterables.BoxingArrayList<Boolean>(array));
     }
     
     public static final Set<Byte> newSet(byte[] array) {
-        return newSet(newArray(array));
+        return array == null ? null : newSet(new Iterables.BoxingArrayList<Byte>(array));
     }
     
     public static final Set<Character> newSet(char[] array) {
-        return newSet(newArray(array));
+        return array == null ? null : newSet(new Iterables.BoxingArrayList<Character>(array));
     }
     
     public static final Set<Double> newSet(double[] array) {
-        return newSet(newArray(array));
+        return newSet(it(array));
     }
     
     public static final Set<Float> newSet(float[] array) {
-        return newSet(newArray(array));
+        return array == null ? null : newSet(new Iterables.BoxingArrayList<Float>(array));
     }
 
     public static final Set<Integer> newSet(int[] array) {
-        return newSet(newArray(array));
+        if (array == null) {
+            return null;
+        }
+        IntSet ret = new IntSet(array.length);
+        for (int x: array) {
+            ret.add(x);
+        }
+        return java.util.Collections.unmodifiableSet(ret);
     }
     
     public static final Set<Long> newSet(long[] array) {
-        return newSet(newArray(array));
+        if (array == null) {
+            return null;
+        }
+        LongSet ret = new LongSet(array.length);
+        for (long x: array) {
+            ret.add(x);
+        }
+        return java.util.Collections.unmodifiableSet(ret);
     }
     
     public static final Set<Short> newSet(short[] array) {
-        return newSet(newArray(array));
+        return array == null ? null : newSet(new Iterables.BoxingArrayList<Short>(array));
     }
     
     public static final <T> Set<T> newSet(T[] elements) {
@@ -453,7 +561,7 @@ public abstract class Collections {
         if (elements == null) {
             return null;
         }
-        if (unmodifiableListClass.isInstance(elements)) {
+        if (unmodifiableListClass.isInstance(elements) || elements instanceof Iterables.PrimitiveList) {
             return (List<T>)elements;
         }
         if (elements instanceof ForceableIterable) {
@@ -928,6 +1036,27 @@ public abstract class Collections {
         return xs == null ? null : new Iterables.MemoizingCharSequenceIterable(xs);
     }
     
+    /**
+     * @return a view of <i>xs</i> that can be iterated without boxing.
+     */
+    public static final IntIterable it(int[] xs) {
+        return xs == null ? null : new Iterables.IntArrayIterable(xs, 0, xs.length);
+    }
+    
+    /**
+     * @return a view of <i>xs</i> that can be iterated without boxing.
+     */
+    public static final LongIterable it(long[] xs) {
+        return xs == null ? null : new Iterables.LongArrayIterable(xs, 0, xs.length);
+    }
+    
+    /**
+     * @return a view of <i>xs</i> that can be iterated without boxing.
+     */
+    public static final DoubleIterable it(double[] xs) {
+        return xs == null ? null : new Iterables.DoubleArrayIterable(xs, 0, xs.length);
+    }
+    
     public static final <T> Iterable<T> lazily(final Supplier<Iterable<T>> s) {
         return new Iterable<T>() {
             public Iterator<T> iterator() {
@@ -935,4 +1064,16 @@ public abstract class Collections {
             }
         };
     }
+    
+    /**
+     * Like <i>lazily</i>, but calls <i>s</i> only once, and iterates the same result from then on.
+     */
+    public static final <T> Iterable<T> lazilyOnce(Supplier<Iterable<T>> s) {
+        final Lazy<Iterable<T>> xs = Lazy.of(s);
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return xs.apply().iterator();
+            }
+        };
+    }
 }
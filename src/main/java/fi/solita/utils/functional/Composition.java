@@ -0,0 +1,140 @@
+package fi.solita.utils.functional;
+
+import java.util.Arrays;
+
+/**
+ * Composed function as a flat array of stages applied in a loop, so that composing
+ * many functions neither nests wrappers nor deepens the call stack. Composing with
+ * a composition splices in its stages, and identities are left out.
+ */
+final class Composition<T,R> extends Function1<T,R> {
+    private static final Apply<Object,Object>[] NO_STAGES = newStages(0);
+
+    final Apply<Object,Object>[] stages;
+
+    private Composition(Apply<Object,Object>[] stages) {
+        this.stages = stages;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Apply<Object,Object>[] newStages(int n) {
+        return new Apply[n];
+    }
+
+    @SuppressWarnings("unchecked")
+    static final Apply<Object,Object>[] stages(Apply<?,?> f) {
+        if (f == Function.id()) {
+            return NO_STAGES;
+        }
+        if (f instanceof Composition) {
+            return ((Composition<?,?>)f).stages;
+        }
+        if (f instanceof Transformer.Composed) {
+            return stages(((Transformer.Composed<?,?>)f).composition);
+        }
+        Apply<Object,Object>[] ret = newStages(1);
+        ret[0] = (Apply<Object,Object>)f;
+        return ret;
+    }
+
+    static final Apply<Object,Object>[] concat(Apply<Object,Object>[] first, Apply<Object,Object>[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        if (second.length == 0) {
+            return first;
+        }
+        Apply<Object,Object>[] ret = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, ret, first.length, second.length);
+        return ret;
+    }
+
+    static final Object applyAll(Apply<Object,Object>[] stages, Object x) {
+        for (Apply<Object,Object> f: stages) {
+            x = f.apply(x);
+        }
+        return x;
+    }
+
+    @SuppressWarnings("unchecked")
+    static final <T,R> Function1<T,R> of(Apply<? super T,?> first, Apply<?,? extends R> second) {
+        Apply<Object,Object>[] stages = concat(stages(first), stages(second));
+        if (stages.length == 0) {
+            return (Function1<T,R>)Function.id();
+        }
+        if (stages.length == 1 && stages[0] instanceof Function1) {
+            return (Function1<T,R>)(Object)stages[0];
+        }
+        return new Composition<T,R>(stages);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final R apply(T t) {
+        return (R)applyAll(stages, t);
+    }
+
+    /**
+     * <i>source</i> followed by the stages.
+     */
+    static final class Then0<R> extends Function0<R> {
+        final Function0<?> source;
+        final Apply<Object,Object>[] stages;
+
+        private Then0(Function0<?> source, Apply<Object,Object>[] stages) {
+            this.source = source;
+            this.stages = stages;
+        }
+
+        @SuppressWarnings("unchecked")
+        static final <R> Function0<R> of(Function0<?> source, Apply<?,? extends R> next) {
+            Apply<Object,Object>[] stages = stages(next);
+            if (stages.length == 0) {
+                return (Function0<R>)source;
+            }
+            if (source instanceof Then0) {
+                Then0<?> s = (Then0<?>)source;
+                return new Then0<R>(s.source, concat(s.stages, stages));
+            }
+            return new Then0<R>(source, stages);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public final R apply() {
+            return (R)applyAll(stages, source.apply());
+        }
+    }
+
+    /**
+     * <i>source</i> followed by the stages.
+     */
+    static final class Then2<T1,T2,R> extends Function2<T1,T2,R> {
+        final Function2<T1,T2,?> source;
+        final Apply<Object,Object>[] stages;
+
+        private Then2(Function2<T1,T2,?> source, Apply<Object,Object>[] stages) {
+            this.source = source;
+            this.stages = stages;
+        }
+
+        @SuppressWarnings("unchecked")
+        static final <T1,T2,R> Function2<T1,T2,R> of(Function2<T1,T2,?> source, Apply<?,? extends R> next) {
+            Apply<Object,Object>[] stages = stages(next);
+            if (stages.length == 0) {
+                return (Function2<T1,T2,R>)source;
+            }
+            if (source instanceof Then2) {
+                Then2<T1,T2,?> s = (Then2<T1,T2,?>)source;
+                return new Then2<T1,T2,R>(s.source, concat(s.stages, stages));
+            }
+            return new Then2<T1,T2,R>(source, stages);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public final R apply(T1 t1, T2 t2) {
+            return (R)applyAll(stages, source.apply(t1, t2));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Option.None;
+import static fi.solita.utils.functional.Option.Some;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterable of primitive doubles. Iterating with <i>doubleIterator</i>, and the operations here, don't box.
+ * Like the rest of the library, <i>map</i> and <i>filter</i> are lazy.
+ */
+public abstract class DoubleIterable implements Iterable<Double>, Iterables.PossiblySizeAwareIterable<Double> {
+    public static interface DoubleIterator {
+        boolean hasNext();
+        double nextDouble();
+    }
+    
+    public static interface DoubleTransformer {
+        double transform(double source);
+    }
+    
+    public static interface DoublePredicate {
+        boolean accept(double candidate);
+    }
+    
+    public abstract DoubleIterator doubleIterator();
+    
+    /**
+     * @return the number of elements, if known without iterating.
+     */
+    public Option<Long> size() {
+        return None();
+    }
+    
+    public final Iterator<Double> iterator() {
+        final DoubleIterator it = doubleIterator();
+        return new Iterator<Double>() {
+            public final boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public final Double next() {
+                return it.nextDouble();
+            }
+
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    public final DoubleIterable map(final DoubleTransformer f) {
+        final DoubleIterable source = this;
+        return new DoubleIterable() {
+            @Override
+            public final DoubleIterator doubleIterator() {
+                final DoubleIterator it = source.doubleIterator();
+                return new DoubleIterator() {
+                    public final boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    
+                    public final double nextDouble() {
+                        return f.transform(it.nextDouble());
+                    }
+                };
+            }
+            
+            @Override
+            public final Option<Long> size() {
+                return source.size();
+            }
+        };
+    }
+    
+    public final DoubleIterable filter(final DoublePredicate p) {
+        final DoubleIterable source = this;
+        return new DoubleIterable() {
+            @Override
+            public final DoubleIterator doubleIterator() {
+                final DoubleIterator it = source.doubleIterator();
+                return new DoubleIterator() {
+                    private boolean ready = false;
+                    private double next;
+                    
+                    public final boolean hasNext() {
+                        while (!ready && it.hasNext()) {
+                            next = it.nextDouble();
+                            ready = p.accept(next);
+                        }
+                        return ready;
+                    }
+                    
+                    public final double nextDouble() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        ready = false;
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+    
+    public double fold(double zero, DoubleSemiGroup f) {
+        double ret = zero;
+        for (DoubleIterator it = doubleIterator(); it.hasNext();) {
+            ret = f.applyDouble(ret, it.nextDouble());
+        }
+        return ret;
+    }
+    
+    public final double reduce(DoubleMonoid m) {
+        return fold(m.zeroDouble(), m);
+    }
+    
+    public double sum() {
+        double ret = 0;
+        for (DoubleIterator it = doubleIterator(); it.hasNext();) {
+            ret += it.nextDouble();
+        }
+        return ret;
+    }
+    
+    public Option<Double> min() {
+        DoubleIterator it = doubleIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        double ret = it.nextDouble();
+        while (it.hasNext()) {
+            double x = it.nextDouble();
+            if (Double.compare(x, ret) < 0) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public Option<Double> max() {
+        DoubleIterator it = doubleIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        double ret = it.nextDouble();
+        while (it.hasNext()) {
+            double x = it.nextDouble();
+            if (Double.compare(x, ret) > 0) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public double[] toArray() {
+        Option<Long> size = size();
+        double[] ret = new double[Iterables.arrayCapacity(size)];
+        int i = 0;
+        for (DoubleIterator it = doubleIterator(); it.hasNext();) {
+            if (i == ret.length) {
+                ret = Arrays.copyOf(ret, Iterables.grownCapacity(ret.length));
+            }
+            ret[i++] = it.nextDouble();
+        }
+        return i == ret.length ? ret : Arrays.copyOf(ret, i);
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,81 @@
+package fi.solita.utils.functional;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list backed by a double array. Elements are boxed only when read through the <i>List</i> interface,
+ * <i>getDouble</i> and <i>doubles</i> don't box.
+ */
+public final class DoubleList extends Iterables.PrimitiveList<Double> {
+    private final double[] xs;
+
+    DoubleList(double[] xs) {
+        this.xs = xs;
+    }
+
+    public final double getDouble(int index) {
+        return xs[index];
+    }
+
+    /**
+     * @return a view of this list that can be iterated without boxing.
+     */
+    public final DoubleIterable doubles() {
+        return new Iterables.DoubleArrayIterable(xs, 0, xs.length);
+    }
+
+    public final double[] toDoubleArray() {
+        return xs.clone();
+    }
+
+    @Override
+    public final Double get(int index) {
+        return xs[index];
+    }
+
+    @Override
+    public final int size() {
+        return xs.length;
+    }
+
+    @Override
+    public final boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public final int indexOf(Object o) {
+        if (o instanceof Double) {
+            double x = (Double)o;
+            for (int i = 0; i < xs.length; ++i) {
+                if (Double.doubleToLongBits(xs[i]) == Double.doubleToLongBits(x)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int lastIndexOf(Object o) {
+        if (o instanceof Double) {
+            double x = (Double)o;
+            for (int i = xs.length - 1; i >= 0; --i) {
+                if (Double.doubleToLongBits(xs[i]) == Double.doubleToLongBits(x)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Arrays.hashCode(xs);
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        return o instanceof DoubleList ? Arrays.equals(xs, ((DoubleList)o).xs) : super.equals(o);
+    }
+}
@@ -0,0 +1,5 @@
+package fi.solita.utils.functional;
+
+public interface DoubleMonoid extends DoubleSemiGroup, Monoid<Double> {
+    double zeroDouble();
+}
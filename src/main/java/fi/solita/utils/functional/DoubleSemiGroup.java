@@ -0,0 +1,8 @@
+package fi.solita.utils.functional;
+
+/**
+ * A SemiGroup that can also combine unboxed doubles.
+ */
+public interface DoubleSemiGroup extends SemiGroup<Double> {
+    double applyDouble(double first, double second);
+}
@@ -1,6 +1,6 @@
 package fi.solita.utils.functional;
 
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public abstract class Function {
     private Function() {
@@ -25,6 +25,9 @@ public abstract class Function {
     }
 
     public static final <T, R> Function1<T, R> of(final Apply<T, R> apply) {
+        if (apply instanceof Function1) {
+            return (Function1<T, R>)apply;
+        }
         return new Function1<T, R>() {
             @Override
             public final R apply(T t) {
@@ -33,17 +36,33 @@ public abstract class Function {
         };
     }
     
+    /**
+     * Thread-safe, see <i>Lazy</i>.
+     */
     public static final <R> Function0<R> memoize(final Function0<R> apply) {
-        return new Function0<R>() {
-            private R r;
-            @Override
-            public final R apply() {
-                if (r == null) {
-                    r = apply.apply();
-                }
-                return r;
-            }
-        };
+        return Lazy.of(apply);
+    }
+
+    /**
+     * Thread-safe and unbounded, see <i>Memoized</i>.
+     */
+    public static final <T, R> Memoized<T, R> memoize(Apply<? super T, ? extends R> f) {
+        return new Memoized<T, R>(f, Memoized.UNBOUNDED, 0, 0);
+    }
+    
+    /**
+     * Keeps at most <i>maximumSize</i> most recently used values, see <i>Memoized</i>.
+     */
+    public static final <T, R> Memoized<T, R> memoize(long maximumSize, Apply<? super T, ? extends R> f) {
+        return new Memoized<T, R>(f, maximumSize, 0, 0);
+    }
+    
+    /**
+     * @param expireAfterWrite 0 for never.
+     * @param refreshAfterWrite 0 for never.
+     */
+    public static final <T, R> Memoized<T, R> memoize(long maximumSize, long expireAfterWrite, long refreshAfterWrite, TimeUnit unit, Apply<? super T, ? extends R> f) {
+        return new Memoized<T, R>(f, maximumSize, unit.toNanos(expireAfterWrite), unit.toNanos(refreshAfterWrite));
     }
 
     private static final Function1<?, ?> ID = new Function1<Object, Object>() {
@@ -119,195 +138,62 @@ public abstract class Function {
 }
 
 class PartialApplicationHelper {
-    static final Object[] replacePlaceholdersWithParams(Object[] paramsAndPlaceholders, Object... actualParamsForPlaceholders) {
-        Object[] ret = Arrays.copyOf(paramsAndPlaceholders, paramsAndPlaceholders.length);
+    /**
+     * Resolved once when a function is partially applied, so that calls don't need to look for placeholders.
+     */
+    static final int[] placeholderPositions(Object[] paramsAndPlaceholders) {
+        int count = 0;
+        for (Object p: paramsAndPlaceholders) {
+            if (p == Function._) {
+                count++;
+            }
+        }
+        int[] ret = new int[count];
         int t = 0;
-        for (int i = 0; i < ret.length; ++i) {
-            if (ret[i] == Function._) {
-                ret[i] = actualParamsForPlaceholders[t];
-                t++;
-                if (t == actualParamsForPlaceholders.length) {
-                    break;
-                }
+        for (int i = 0; i < paramsAndPlaceholders.length; ++i) {
+            if (paramsAndPlaceholders[i] == Function._) {
+                ret[t++] = i;
             }
         }
         return ret;
     }
     
-    static final <R> R doApply(Apply<Tuple,R> f, Object[] paramsAndPlaceholders, Object... params) {
-        return f.apply(Tuple.of(replacePlaceholdersWithParams(paramsAndPlaceholders, params)));
-    }
-    
-    private static final Tuple replacePlaceholders(Object[] args, Object[] t, Object... p) {
-        Object[] ret = new Object[args.length];
+    /**
+     * Fills the placeholders of <i>args</i> with <i>t</i>, and leaves the rest as placeholders for the returned function.
+     */
+    @SuppressWarnings("unchecked")
+    static final <R,FR extends Apply<?,R>> FR makeSecondFunc(MultiParamFunction<?,R> f, Object[] args, Object... t) {
+        Object[] paramsAndPlaceholders = new Object[args.length];
         int ti = 0;
-        int pi = 0;
-        for (int i = 0; i < ret.length; ++i) {
-            if (args[i] == Function._) {
-                ret[i] = t[ti];
-                ti++;
-            } else {
-                ret[i] = p[pi];
-                pi++;
-            }
+        for (int i = 0; i < args.length; ++i) {
+            paramsAndPlaceholders[i] = args[i] == Function._ ? t[ti++] : Function._;
         }
-        return Tuple.of(ret);
-    }
-    
-    @SuppressWarnings("unchecked")
-    static final <R,FR extends Apply<?,R>> FR makeSecondFunc(final Apply<? extends Tuple,R> f, final Object[] args, final Object... t) {
-        final Apply<Tuple,R> ff = ((Apply<Tuple,R>)f);
         switch (args.length - t.length) {
-            case 1: return (FR) new Function1<Object,R>() {
-                @Override
-                public final R apply(Object p1) {
-                    return ff.apply(replacePlaceholders(args, t, p1));
-                }
-            };
-            case 2: return (FR) new Function2<Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2));
-                }
-            };
-            case 3: return (FR) new Function3<Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3));
-                }
-            };
-            case 4: return (FR) new Function4<Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4));
-                }
-            };
-            case 5: return (FR) new Function5<Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5));
-                }
-            };
-            case 6: return (FR) new Function6<Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6));
-                }
-            };
-            case 7: return (FR) new Function7<Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7));
-                }
-            };
-            case 8: return (FR) new Function8<Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8));
-                }
-            };
-            case 9: return (FR) new Function9<Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9));
-                }
-            };
-            case 10: return (FR) new Function10<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10));
-                }
-            };
-            case 11: return (FR) new Function11<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11));
-                }
-            };
-            case 12: return (FR) new Function12<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12));
-                }
-            };
-            case 13: return (FR) new Function13<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13));
-                }
-            };
-            case 14: return (FR) new Function14<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14));
-                }
-            };
-            case 15: return (FR) new Function15<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15));
-                }
-            };
-            case 16: return (FR) new Function16<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16));
-                }
-            };
-            case 17: return (FR) new Function17<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17));
-                }
-            };
-            case 18: return (FR) new Function18<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18));
-                }
-            };
-            case 19: return (FR) new Function19<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19));
-                }
-            };
-            case 20: return (FR) new Function20<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20));
-                }
-            };
-            case 21: return (FR) new Function21<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20, Object p21) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20, p21));
-                }
-            };
-            case 22: return (FR) new Function22<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20, Object p21, Object p22) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20, p21, p22));
-                }
-            };
-            case 23: return (FR) new Function23<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20, Object p21, Object p22, Object p23) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20, p21, p22, p23));
-                }
-            };
-            case 24: return (FR) new Function24<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20, Object p21, Object p22, Object p23, Object p24) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20, p21, p22, p23, p24));
-                }
-            };
-            case 25: return (FR) new Function25<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,Object,R>() {
-                @Override
-                public final R apply(Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9, Object p10, Object p11, Object p12, Object p13, Object p14, Object p15, Object p16, Object p17, Object p18, Object p19, Object p20, Object p21, Object p22, Object p23, Object p24, Object p25) {
-                    return ff.apply(replacePlaceholders(args, t, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p20, p21, p22, p23, p24, p25));
-                }
-            };
+            case 1: return (FR) Function1.partial(f, paramsAndPlaceholders);
+            case 2: return (FR) Function2.partial(f, paramsAndPlaceholders);
+            case 3: return (FR) Function3.partial(f, paramsAndPlaceholders);
+            case 4: return (FR) Function4.partial(f, paramsAndPlaceholders);
+            case 5: return (FR) Function5.partial(f, paramsAndPlaceholders);
+            case 6: return (FR) Function6.partial(f, paramsAndPlaceholders);
+            case 7: return (FR) Function7.partial(f, paramsAndPlaceholders);
+            case 8: return (FR) Function8.partial(f, paramsAndPlaceholders);
+            case 9: return (FR) Function9.partial(f, paramsAndPlaceholders);
+            case 10: return (FR) Function10.partial(f, paramsAndPlaceholders);
+            case 11: return (FR) Function11.partial(f, paramsAndPlaceholders);
+            case 12: return (FR) Function12.partial(f, paramsAndPlaceholders);
+            case 13: return (FR) Function13.partial(f, paramsAndPlaceholders);
+            case 14: return (FR) Function14.partial(f, paramsAndPlaceholders);
+            case 15: return (FR) Function15.partial(f, paramsAndPlaceholders);
+            case 16: return (FR) Function16.partial(f, paramsAndPlaceholders);
+            case 17: return (FR) Function17.partial(f, paramsAndPlaceholders);
+            case 18: return (FR) Function18.partial(f, paramsAndPlaceholders);
+            case 19: return (FR) Function19.partial(f, paramsAndPlaceholders);
+            case 20: return (FR) Function20.partial(f, paramsAndPlaceholders);
+            case 21: return (FR) Function21.partial(f, paramsAndPlaceholders);
+            case 22: return (FR) Function22.partial(f, paramsAndPlaceholders);
+            case 23: return (FR) Function23.partial(f, paramsAndPlaceholders);
+            case 24: return (FR) Function24.partial(f, paramsAndPlaceholders);
+            case 25: return (FR) Function25.partial(f, paramsAndPlaceholders);
         }
         throw new UnsupportedOperationException("Not implemented");
     }
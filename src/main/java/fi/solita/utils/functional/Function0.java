@@ -7,12 +7,7 @@ public abstract class Function0<R> implements Apply<Tuple0,R>, Supplier<R>, Seri
     public abstract R apply();
     
     public final <U> Function0<U> andThen(final Apply<? super R, ? extends U> next) {
-        return new Function0<U>() {
-            @Override
-            public U apply() {
-                return next.apply(Function0.this.apply());
-            }
-        };
+        return Composition.Then0.of(this, next);
     }
     
     public final R apply(Tuple0 t) {
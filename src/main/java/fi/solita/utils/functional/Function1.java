@@ -6,22 +6,15 @@ public abstract class Function1<T, R> implements Apply<T,R>, Serializable {
     
     public abstract R apply(T t);
 
+    /**
+     * Composes into a flat chain of stages, see <i>Composition</i>.
+     */
     public <U> Function1<T, U> andThen(final Apply<? super R, ? extends U> next) {
-        return new Function1<T, U>() {
-            @Override
-            public final U apply(T source) {
-                return next.apply(Function1.this.apply(source));
-            }
-        };
+        return Composition.<T, U>of(this, next);
     }
     
     public final <U> Function1<U, R> compose(final Apply<? super U, ? extends T> next) {
-        return new Function1<U, R>() {
-            @Override
-            public final R apply(U source) {
-                return Function1.this.apply(next.apply(source));
-            }
-        };
+        return Composition.<U, R>of(next, this);
     }
 
     public final Function1<Tuple1<T>, R> tuppled() {
@@ -42,17 +35,19 @@ public abstract class Function1<T, R> implements Apply<T,R>, Serializable {
         };
     }
     
-    static final <T1,R> Function1<T1,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,R> Function1<T1,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function1<T1,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public final R apply(T1 t1) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,R,FR extends Apply<?,R>> Function1<T1,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,R,FR extends Apply<?,R>> Function1<T1,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function1<T1,FR>() {
             @Override
             public final FR apply(T1 t1) {
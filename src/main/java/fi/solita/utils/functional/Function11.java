@@ -23,6 +23,12 @@ public abstract class Function11<T1, T2, T3, T4, T5, T6, T7, T8, T9, T10, T11, R
         };
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    final R applyArgs(Object[] args) {
+        return apply((T1)args[0], (T2)args[1], (T3)args[2], (T4)args[3], (T5)args[4], (T6)args[5], (T7)args[6], (T8)args[7], (T9)args[8], (T10)args[9], (T11)args[10]);
+    }
+    
     public Function1<T1, Function1<T2, Function1<T3, Function1<T4, Function1<T5, Function1<T6, Function1<T7, Function1<T8, Function1<T9, Function1<T10, Function1<T11, R>>>>>>>>>>> curried() {
         return new Function1<T1, Function1<T2, Function1<T3, Function1<T4, Function1<T5, Function1<T6, Function1<T7, Function1<T8, Function1<T9, Function1<T10, Function1<T11, R>>>>>>>>>>>() {
             @Override
@@ -82,17 +88,29 @@ public abstract class Function11<T1, T2, T3, T4, T5, T6, T7, T8, T9, T10, T11, R
         };
     }
     
-    static final <T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R> Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R> Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public R apply(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6, T7 t7, T8 t8, T9 t9, T10 t10, T11 t11) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1, t2, t3, t4, t5, t6, t7, t8, t9, t10, t11);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                args[holes[1]] = t2;
+                args[holes[2]] = t3;
+                args[holes[3]] = t4;
+                args[holes[4]] = t5;
+                args[holes[5]] = t6;
+                args[holes[6]] = t7;
+                args[holes[7]] = t8;
+                args[holes[8]] = t9;
+                args[holes[9]] = t10;
+                args[holes[10]] = t11;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R,FR extends Apply<?,R>> Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,R,FR extends Apply<?,R>> Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,FR>() {
             @Override
             public FR apply(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5, T6 t6, T7 t7, T8 t8, T9 t9, T10 t10, T11 t11) {
@@ -8,15 +8,20 @@ import fi.solita.utils.functional.Function.GivenLater;
 public abstract class Function2<T1, T2, R> extends MultiParamFunction<Map.Entry<? extends T1,? extends T2>, R> {
 
     public abstract R apply(T1 t1, T2 t2);
-    
+
+    /**
+     * Applies <i>f</i> to <i>t1</i> and <i>t2</i>, without allocating a tuple if <i>f</i> is a Function2.
+     */
+    @SuppressWarnings("unchecked")
+    static final <T1,T2,R> R applyUntuppled(Apply<? super Tuple2<T1,T2>, ? extends R> f, T1 t1, T2 t2) {
+        if (f instanceof Function2) {
+            return ((Function2<T1,T2,R>)(Object)f).apply(t1, t2);
+        }
+        return f.apply(Tuple.of(t1, t2));
+    }
+
     public final <U> Function2<T1, T2, U> andThen(final Apply<? super R, ? extends U> next) {
-        final Function2<T1, T2, R> self = this;
-        return new Function2<T1, T2, U>() {
-            @Override
-            public final U apply(T1 t1, T2 t2) {
-                return next.apply(self.apply(t1, t2));
-            }
-        };
+        return Composition.Then2.of(this, next);
     }
     
     @Override
@@ -29,6 +34,12 @@ public abstract class Function2<T1, T2, R> extends MultiParamFunction<Map.Entry<
         };
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    final R applyArgs(Object[] args) {
+        return apply((T1)args[0], (T2)args[1]);
+    }
+    
     public final Function1<T1, Function1<T2, R>> curried() {
         return new Function1<T1, Function1<T2,R>>() {
             @Override
@@ -62,17 +73,20 @@ public abstract class Function2<T1, T2, R> extends MultiParamFunction<Map.Entry<
         };
     }
     
-    static final <T1,T2,R> Function2<T1,T2,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,T2,R> Function2<T1,T2,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function2<T1,T2,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public final R apply(T1 t1, T2 t2) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1, t2);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                args[holes[1]] = t2;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,T2,R,FR extends Apply<?,R>> Function2<T1,T2,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,T2,R,FR extends Apply<?,R>> Function2<T1,T2,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function2<T1,T2,FR>() {
             @Override
             public final FR apply(T1 t1, T2 t2) {
@@ -27,6 +27,12 @@ public abstract class Function3<T1, T2, T3, R> extends MultiParamFunction<Tuple3
         };
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    final R applyArgs(Object[] args) {
+        return apply((T1)args[0], (T2)args[1], (T3)args[2]);
+    }
+    
     public Function1<T1, Function1<T2, Function1<T3, R>>> curried() {
         return new Function1<T1, Function1<T2, Function1<T3, R>>>() {
             @Override
@@ -54,17 +60,21 @@ public abstract class Function3<T1, T2, T3, R> extends MultiParamFunction<Tuple3
         };
     }
     
-    static final <T1,T2,T3,R> Function3<T1,T2,T3,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,T2,T3,R> Function3<T1,T2,T3,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function3<T1,T2,T3,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public R apply(T1 t1, T2 t2, T3 t3) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1, t2, t3);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                args[holes[1]] = t2;
+                args[holes[2]] = t3;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,T2,T3,R,FR extends Apply<?,R>> Function3<T1,T2,T3,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,T2,T3,R,FR extends Apply<?,R>> Function3<T1,T2,T3,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function3<T1,T2,T3,FR>() {
             @Override
             public FR apply(T1 t1, T2 t2, T3 t3) {
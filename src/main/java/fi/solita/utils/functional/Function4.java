@@ -26,6 +26,12 @@ public abstract class Function4<T1, T2, T3, T4, R> extends MultiParamFunction<Tu
         };
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    final R applyArgs(Object[] args) {
+        return apply((T1)args[0], (T2)args[1], (T3)args[2], (T4)args[3]);
+    }
+    
     public Function1<T1, Function1<T2, Function1<T3, Function1<T4, R>>>> curried() {
         return new Function1<T1, Function1<T2, Function1<T3, Function1<T4, R>>>>() {
             @Override
@@ -57,17 +63,22 @@ public abstract class Function4<T1, T2, T3, T4, R> extends MultiParamFunction<Tu
         };
     }
     
-    static final <T1,T2,T3,T4,R> Function4<T1,T2,T3,T4,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,T2,T3,T4,R> Function4<T1,T2,T3,T4,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function4<T1,T2,T3,T4,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public R apply(T1 t1, T2 t2, T3 t3, T4 t4) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1, t2, t3, t4);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                args[holes[1]] = t2;
+                args[holes[2]] = t3;
+                args[holes[3]] = t4;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,T2,T3,T4,R,FR extends Apply<?,R>> Function4<T1,T2,T3,T4,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,T2,T3,T4,R,FR extends Apply<?,R>> Function4<T1,T2,T3,T4,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function4<T1,T2,T3,T4,FR>() {
             @Override
             public FR apply(T1 t1, T2 t2, T3 t3, T4 t4) {
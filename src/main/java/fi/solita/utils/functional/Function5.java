@@ -26,6 +26,12 @@ public abstract class Function5<T1, T2, T3, T4, T5, R> extends MultiParamFunctio
         };
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    final R applyArgs(Object[] args) {
+        return apply((T1)args[0], (T2)args[1], (T3)args[2], (T4)args[3], (T5)args[4]);
+    }
+    
     public Function1<T1, Function1<T2, Function1<T3, Function1<T4, Function1<T5, R>>>>> curried() {
         return new Function1<T1, Function1<T2, Function1<T3, Function1<T4, Function1<T5, R>>>>>() {
             @Override
@@ -61,17 +67,23 @@ public abstract class Function5<T1, T2, T3, T4, T5, R> extends MultiParamFunctio
         };
     }
     
-    static final <T1,T2,T3,T4,T5,R> Function5<T1,T2,T3,T4,T5,R> partial(final Apply<? extends Tuple,R> f, final Object... paramsAndPlaceholders) {
+    static final <T1,T2,T3,T4,T5,R> Function5<T1,T2,T3,T4,T5,R> partial(final MultiParamFunction<?,R> f, final Object... paramsAndPlaceholders) {
+        final int[] holes = PartialApplicationHelper.placeholderPositions(paramsAndPlaceholders);
         return new Function5<T1,T2,T3,T4,T5,R>() {
-            @SuppressWarnings("unchecked")
             @Override
             public R apply(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5) {
-                return PartialApplicationHelper.doApply((Apply<Tuple,R>)f, paramsAndPlaceholders, t1, t2, t3, t4, t5);
+                Object[] args = paramsAndPlaceholders.clone();
+                args[holes[0]] = t1;
+                args[holes[1]] = t2;
+                args[holes[2]] = t3;
+                args[holes[3]] = t4;
+                args[holes[4]] = t5;
+                return f.applyArgs(args);
             }
         };
     }
     
-    static final <T1,T2,T3,T4,T5,R,FR extends Apply<?,R>> Function5<T1,T2,T3,T4,T5,FR> split(final Apply<? extends Tuple,R> f, final Object... placeholders) {
+    static final <T1,T2,T3,T4,T5,R,FR extends Apply<?,R>> Function5<T1,T2,T3,T4,T5,FR> split(final MultiParamFunction<?,R> f, final Object... placeholders) {
         return new Function5<T1,T2,T3,T4,T5,FR>() {
             @Override
             public FR apply(T1 t1, T2 t2, T3 t3, T4 t4, T5 t5) {
@@ -8,7 +8,6 @@ import java.util.List;
 import java.util.Map;
 
 import fi.solita.utils.functional.Iterables.RepeatingIterable;
-import fi.solita.utils.functional.Iterables.ZippingIterable;
 
 public abstract class Functional extends FunctionalC {
 
@@ -80,6 +79,48 @@ public abstract class Functional extends FunctionalC {
         return FunctionalImpl.grouped(groupSize, xs);
     }
     
+    /**
+     * Windows of <i>size</i> elements starting every <i>step</i> elements. The last window may be smaller.
+     */
+    public static final <T> Iterable<List<T>> sliding(long size, long step, Iterable<T> xs) {
+        return FunctionalImpl.sliding(size, step, false, xs);
+    }
+    
+    /**
+     * @param reuseWindow whether to return the same list for each window, which then must not be held on to.
+     */
+    public static final <T> Iterable<List<T>> sliding(long size, long step, boolean reuseWindow, Iterable<T> xs) {
+        return FunctionalImpl.sliding(size, step, reuseWindow, xs);
+    }
+    
+    /**
+     * Windows of consecutive elements having the same <i>key</i>.
+     */
+    public static final <T,K> Iterable<List<T>> tumbling(Apply<? super T,K> key, Iterable<T> xs) {
+        return FunctionalImpl.tumbling(key, false, xs);
+    }
+    
+    /**
+     * @param reuseWindow whether to return the same list for each window, which then must not be held on to.
+     */
+    public static final <T,K> Iterable<List<T>> tumbling(Apply<? super T,K> key, boolean reuseWindow, Iterable<T> xs) {
+        return FunctionalImpl.tumbling(key, reuseWindow, xs);
+    }
+    
+    /**
+     * Windows of consecutive elements, a new one starting with each element accepted by <i>windowStarts</i>.
+     */
+    public static final <T> Iterable<List<T>> tumblingStartingWith(Apply<? super T,Boolean> windowStarts, Iterable<T> xs) {
+        return FunctionalImpl.tumblingStartingWith(windowStarts, false, xs);
+    }
+    
+    /**
+     * @param reuseWindow whether to return the same list for each window, which then must not be held on to.
+     */
+    public static final <T> Iterable<List<T>> tumblingStartingWith(Apply<? super T,Boolean> windowStarts, boolean reuseWindow, Iterable<T> xs) {
+        return FunctionalImpl.tumblingStartingWith(windowStarts, reuseWindow, xs);
+    }
+    
     public static final <T> Iterable<Iterable<T>> group(Iterable<T> xs) {
         return FunctionalImpl.group(xs);
     }
@@ -112,6 +153,13 @@ public abstract class Functional extends FunctionalC {
         return FunctionalImpl.init(xs);
     }
     
+    /**
+     * @return element at <i>index</i>, or <i>None</i> if there are not that many. Doesn't iterate through lists or concatenations of them.
+     */
+    public static final <T> Option<T> nth(long index, Iterable<T> xs) {
+        return FunctionalImpl.nth(index, xs);
+    }
+    
     public static final <T> Iterable<T> take(long amount, Iterable<T> xs) {
         return FunctionalImpl.take(amount, xs);
     }
@@ -168,6 +216,26 @@ public abstract class Functional extends FunctionalC {
         return FunctionalImpl.sort(comparator, xs);
     }
     
+    /**
+     * Sorts inputs larger than memory: at most <i>maxInMemory</i> elements are held in memory at a time,
+     * the rest are spilled to temporary files with <i>serializer</i>.
+     * The files are deleted as the iteration proceeds. An iterator left unfinished is {@link java.io.Closeable},
+     * and should be closed to delete the rest. <i>take</i> and <i>takeWhile</i> close it when they stop early.
+     */
+    public static final <T extends Comparable<? super T>> Iterable<T> sort(Iterable<T> xs, int maxInMemory, Serializer<T> serializer) {
+        return FunctionalImpl.sort(Ordering.Natural(), xs, maxInMemory, serializer);
+    }
+    
+    /**
+     * Sorts inputs larger than memory: at most <i>maxInMemory</i> elements are held in memory at a time,
+     * the rest are spilled to temporary files with <i>serializer</i>.
+     * The files are deleted as the iteration proceeds. An iterator left unfinished is {@link java.io.Closeable},
+     * and should be closed to delete the rest. <i>take</i> and <i>takeWhile</i> close it when they stop early.
+     */
+    public static final <T> Iterable<T> sort(Comparator<? super T> comparator, Iterable<T> xs, int maxInMemory, Serializer<T> serializer) {
+        return FunctionalImpl.sort(comparator, xs, maxInMemory, serializer);
+    }
+    
     public static final <T extends SemiGroup<T>> Option<T> reduce(Iterable<? extends T> xs) {
         return FunctionalImpl.reduce(xs);
     }
@@ -201,7 +269,7 @@ public abstract class Functional extends FunctionalC {
     }
     
     public static final <A> Iterable<Tuple2<Integer, A>> zipWithIndex(Iterable<A> a) {
-        return new ZippingIterable<Integer,A>(range(0), a);
+        return FunctionalImpl.zipWithIndex(a);
     }
 
     public static final <T, S extends Enumerable<T> & Bounded<T>> Iterable<T> range(S enumeration) {
@@ -243,10 +311,40 @@ public abstract class Functional extends FunctionalC {
         return FunctionalImpl.reverse(xs);
     }
     
+    /**
+     * Evaluates <i>xs</i> at most once, caching the elements as they are first iterated.
+     */
+    public static final <T> Iterable<T> memoize(Iterable<T> xs) {
+        return FunctionalImpl.memoize(xs);
+    }
+    
     public static final <T> Iterable<T> distinct(Iterable<T> xs) {
         return FunctionalImpl.distinct(xs);
     }
     
+    /**
+     * Removes consecutive duplicates, which for sorted input equals <i>distinct</i> but needs constant memory.
+     */
+    public static final <T> Iterable<T> distinctSorted(Iterable<T> xs) {
+        return FunctionalImpl.distinctSorted(xs);
+    }
+    
+    /**
+     * Elements with equal <i>fingerprint</i> are considered duplicates. Only the fingerprints are kept in memory,
+     * so e.g. numeric ids or 64-bit hashes can be used to deduplicate large inputs.
+     */
+    public static final <T> Iterable<T> distinctBy(Apply<? super T, Long> fingerprint, Iterable<T> xs) {
+        return FunctionalImpl.distinctBy(fingerprint, xs);
+    }
+    
+    /**
+     * Approximate <i>distinct</i> in bounded memory, using a Bloom filter sized for <i>expectedSize</i> elements.
+     * Never lets duplicates through, but drops a new element with about <i>falsePositiveProbability</i>.
+     */
+    public static final <T> Iterable<T> distinctApproximately(long expectedSize, double falsePositiveProbability, Apply<? super T, Long> fingerprint, Iterable<T> xs) {
+        return FunctionalImpl.distinctApproximately(expectedSize, falsePositiveProbability, fingerprint, xs);
+    }
+    
     public static final <T,R> Iterable<R> sequence(T value, Iterable<? extends Apply<? super T,? extends R>> fs) {
         return FunctionalImpl.sequence(value, fs);
     }
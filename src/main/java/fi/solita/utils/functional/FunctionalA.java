@@ -10,7 +10,6 @@ import java.util.List;
 import java.util.Map;
 
 import fi.solita.utils.functional.Iterables.ConcatenatingIterable;
-import fi.solita.utils.functional.Iterables.ZippingIterable;
 
 public abstract class FunctionalA extends FunctionalM {
     public static final <T> Iterable<T> subtract(T[] a, Collection<T> b) {
@@ -254,23 +253,23 @@ public abstract class FunctionalA extends FunctionalM {
     }
 
     public static final <T> Iterable<T> concat(Iterable<? extends T> x1, Iterable<? extends T> x2, Iterable<? extends T> x3) {
-        return x1 == null || x2 == null || x3 == null ? null : new ConcatenatingIterable<T>(newList(x1, x2, x3));
+        return x1 == null || x2 == null || x3 == null ? null : ConcatenatingIterable.<T>of(newList(x1, x2, x3));
     }
     
     public static final <T> Iterable<T> concat(Iterable<? extends T> x1, Iterable<? extends T> x2, Iterable<? extends T> x3, Iterable<? extends T> x4) {
-        return x1 == null || x2 == null || x3 == null || x4 == null ? null : new ConcatenatingIterable<T>(newList(x1, x2, x3, x4));
+        return x1 == null || x2 == null || x3 == null || x4 == null ? null : ConcatenatingIterable.<T>of(newList(x1, x2, x3, x4));
     }
     
     public static final <T> Iterable<T> concat(Iterable<? extends T> x1, Iterable<? extends T> x2, Iterable<? extends T> x3, Iterable<? extends T> x4, Iterable<? extends T> x5) {
-        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null ? null : new ConcatenatingIterable<T>(newList(x1, x2, x3, x4, x5));
+        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null ? null : ConcatenatingIterable.<T>of(newList(x1, x2, x3, x4, x5));
     }
     
     public static final <T> Iterable<T> concat(Iterable<? extends T> x1, Iterable<? extends T> x2, Iterable<? extends T> x3, Iterable<? extends T> x4, Iterable<? extends T> x5, Iterable<? extends T> x6) {
-        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null || x6 == null ? null : new ConcatenatingIterable<T>(newList(x1, x2, x3, x4, x5, x6));
+        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null || x6 == null ? null : ConcatenatingIterable.<T>of(newList(x1, x2, x3, x4, x5, x6));
     }
     
     public static final <T> Iterable<T> concat(Iterable<? extends T> x1, Iterable<? extends T> x2, Iterable<? extends T> x3, Iterable<? extends T> x4, Iterable<? extends T> x5, Iterable<? extends T> x6, Iterable<? extends T>... xs) {
-        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null || x6 == null || xs == null ? null : new ConcatenatingIterable<T>(concat(newList(x1, x2, x3, x4, x5, x6), xs));
+        return x1 == null || x2 == null || x3 == null || x4 == null || x5 == null || x6 == null || xs == null ? null : ConcatenatingIterable.<T>of(concat(newList(x1, x2, x3, x4, x5, x6), xs));
     }
     
     
@@ -395,7 +394,7 @@ public abstract class FunctionalA extends FunctionalM {
     
     
     public static final <A> Iterable<Tuple2<Integer, A>> zipWithIndex(A[] a) {
-        return a == null ? null : new ZippingIterable<Integer,A>(FunctionalImpl.range(Enumerables.ints, 0), newList(a));
+        return a == null ? null : FunctionalImpl.zipWithIndex(newList(a));
     }
     
     public static final <T> Iterable<List<T>> rangify(Enumerable<T> enumeration, T[] xs) {
@@ -4,7 +4,7 @@ import static fi.solita.utils.functional.Collections.emptyList;
 import static fi.solita.utils.functional.Collections.it;
 import static fi.solita.utils.functional.Collections.newList;
 import static fi.solita.utils.functional.Collections.newMap;
-import static fi.solita.utils.functional.Collections.newSet;
+import static fi.solita.utils.functional.Collections.newMapOfSize;
 import static fi.solita.utils.functional.Option.None;
 import static fi.solita.utils.functional.Option.Some;
 import static fi.solita.utils.functional.Predicates.equalTo;
@@ -16,13 +16,12 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Set;
 
 import fi.solita.utils.functional.Iterables.ConcatenatingIterable;
 import fi.solita.utils.functional.Iterables.FilteringIterable;
 import fi.solita.utils.functional.Iterables.FlatteningIterable;
 import fi.solita.utils.functional.Iterables.RangeIterable;
+import fi.solita.utils.functional.Iterables.SortingIterable;
 import fi.solita.utils.functional.Iterables.TransformingIterable;
 import fi.solita.utils.functional.Iterables.TransposingIterable;
 import fi.solita.utils.functional.Iterables.ZippingIterable;
@@ -63,6 +62,9 @@ final class FunctionalImpl {
     }
     
     static final <S, T> Iterable<T> map(Apply<? super S, ? extends T> f, Iterable<S> xs) {
+        for (List<S> list: Iterables.randomAccess(xs)) {
+            return Iterables.TransformingList.of(list, f);
+        }
         return xs == null ? null : new TransformingIterable<S,T>(xs, f);
     }
     
@@ -116,32 +118,23 @@ final class FunctionalImpl {
         foreach((Apply<? super T, Void>)procedure, xs);
     }
     
-    /**
-     * Non-lazy
-     */
     static final <T> Iterable<List<T>> grouped(long groupSize, Iterable<T> xs) {
-        if (groupSize <= 0) {
-            throw new IllegalArgumentException("size must be positive");
-        }
-        if (xs == null) {
-            return null;
-        }
-
-        Option<Long> estimatedSize = Iterables.resolveSize.apply(xs);
-        List<List<T>> target = estimatedSize.isDefined() ? Collections.<List<T>>newListOfSize(estimatedSize.get() / groupSize) : Collections.<List<T>>newList();
-        Iterator<T> it = xs.iterator();
-        while (it.hasNext()) {
-            List<T> group = Collections.newListOfSize((int)groupSize);
-            for (int i = 0; i < groupSize; ++i) {
-                if (it.hasNext()) {
-                    group.add(it.next());
-                }
-            }
-            if (!group.isEmpty()) {
-                target.add(group);
-            }
+        return sliding(groupSize, groupSize, false, xs);
+    }
+    
+    static final <T> Iterable<List<T>> sliding(long size, long step, boolean reuseWindow, Iterable<T> xs) {
+        if (size <= 0 || step <= 0) {
+            throw new IllegalArgumentException("size and step must be positive");
         }
-        return target;
+        return xs == null ? null : new Iterables.WindowingIterable<T>(xs, size, step, reuseWindow);
+    }
+    
+    static final <T,K> Iterable<List<T>> tumbling(Apply<? super T,K> key, boolean reuseWindow, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.KeyTumblingIterable<T,K>(xs, key, reuseWindow);
+    }
+    
+    static final <T> Iterable<List<T>> tumblingStartingWith(Apply<? super T,Boolean> windowStarts, boolean reuseWindow, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.PredicateTumblingIterable<T>(xs, windowStarts, reuseWindow);
     }
     
     @SuppressWarnings("unchecked")
@@ -167,14 +160,34 @@ final class FunctionalImpl {
         if (xs == null) {
             return null;
         }
-        Map<G, List<T>> target = newMap();
+        Option<Long> size = Iterables.resolveSize.apply(xs);
+        // the number of groups is unknown, so don't presize for more than a moderate amount of them
+        Map<G, List<T>> target = size.isDefined() ? Collections.<G, List<T>>newMapOfSize(Math.min(size.get(), 1024) * 4 / 3 + 1) : Collections.<G, List<T>>newMap();
         for (T t: xs) {
             G g = f.apply(t);
-            Option<List<T>> groupOption = find(g, target);
-            List<T> group;
-            if (groupOption.isDefined()) {
-                group = groupOption.get();
-            } else {
+            List<T> group = target.get(g);
+            if (group == null) {
+                group = Collections.newList();
+                target.put(g, group);
+            }
+            group.add(t);
+        }
+        return target;
+    }
+    
+    /**
+     * Non-lazy
+     */
+    static final <T> LongMap<List<T>> groupByLong(Apply<? super T,Long> f, Iterable<T> xs) {
+        if (xs == null) {
+            return null;
+        }
+        Option<Long> size = Iterables.resolveSize.apply(xs);
+        LongMap<List<T>> target = new LongMap<List<T>>(size.isDefined() ? Math.min(size.get(), 1024) : 16);
+        for (T t: xs) {
+            long g = f.apply(t);
+            List<T> group = target.get(g);
+            if (group == null) {
                 group = Collections.newList();
                 target.put(g, group);
             }
@@ -183,15 +196,141 @@ final class FunctionalImpl {
         return target;
     }
     
+    static final IntIterable subtract(int[] a, int[] b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        final IntSet bs = new IntSet(b.length);
+        for (int x: b) {
+            bs.add(x);
+        }
+        return Collections.newIntList(a).ints().filter(new IntIterable.IntPredicate() {
+            public final boolean accept(int candidate) {
+                return !bs.contains(candidate);
+            }
+        });
+    }
+    
+    static final LongIterable subtract(long[] a, long[] b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        final LongSet bs = new LongSet(b.length);
+        for (long x: b) {
+            bs.add(x);
+        }
+        return Collections.newLongList(a).longs().filter(new LongIterable.LongPredicate() {
+            public final boolean accept(long candidate) {
+                return !bs.contains(candidate);
+            }
+        });
+    }
+    
+    /**
+     * Non-lazy. Folds each value straight into the accumulator of its key, so no groups are built.
+     */
+    @SuppressWarnings("unchecked")
+    static final <T, K, V> Map<K, V> aggregateBy(Apply<? super T,K> key, Apply<? super T,? extends V> value, Monoid<V> m, Iterable<T> xs) {
+        if (xs == null) {
+            return null;
+        }
+        if (m instanceof LongMonoid) {
+            return (Map<K, V>)(Object)aggregateLong(key, (Apply<? super T,Long>)value, (LongMonoid)m, xs);
+        }
+        if (m instanceof IntMonoid) {
+            return (Map<K, V>)(Object)aggregateInt(key, (Apply<? super T,Integer>)value, (IntMonoid)m, xs);
+        }
+        if (m instanceof DoubleMonoid) {
+            return (Map<K, V>)(Object)aggregateDouble(key, (Apply<? super T,Double>)value, (DoubleMonoid)m, xs);
+        }
+        // accumulators in mutable cells, to avoid a put for every element
+        Map<K, Object[]> cells = newMap();
+        for (T t: xs) {
+            K k = key.apply(t);
+            Object[] cell = cells.get(k);
+            if (cell == null) {
+                cell = new Object[] {m.zero()};
+                cells.put(k, cell);
+            }
+            cell[0] = Function2.applyUntuppled(m, (V)cell[0], value.apply(t));
+        }
+        Map<K, V> ret = newMapOfSize(cells.size() * 4 / 3 + 1);
+        for (Map.Entry<K, Object[]> e: cells.entrySet()) {
+            ret.put(e.getKey(), (V)e.getValue()[0]);
+        }
+        return ret;
+    }
+    
+    private static final <T, K> Map<K, Long> aggregateLong(Apply<? super T,K> key, Apply<? super T,Long> value, LongMonoid m, Iterable<T> xs) {
+        Map<K, long[]> cells = newMap();
+        for (T t: xs) {
+            K k = key.apply(t);
+            long[] cell = cells.get(k);
+            if (cell == null) {
+                cell = new long[] {m.zeroLong()};
+                cells.put(k, cell);
+            }
+            cell[0] = m.applyLong(cell[0], value.apply(t));
+        }
+        Map<K, Long> ret = newMapOfSize(cells.size() * 4 / 3 + 1);
+        for (Map.Entry<K, long[]> e: cells.entrySet()) {
+            ret.put(e.getKey(), e.getValue()[0]);
+        }
+        return ret;
+    }
+    
+    private static final <T, K> Map<K, Integer> aggregateInt(Apply<? super T,K> key, Apply<? super T,Integer> value, IntMonoid m, Iterable<T> xs) {
+        Map<K, int[]> cells = newMap();
+        for (T t: xs) {
+            K k = key.apply(t);
+            int[] cell = cells.get(k);
+            if (cell == null) {
+                cell = new int[] {m.zeroInt()};
+                cells.put(k, cell);
+            }
+            cell[0] = m.applyInt(cell[0], value.apply(t));
+        }
+        Map<K, Integer> ret = newMapOfSize(cells.size() * 4 / 3 + 1);
+        for (Map.Entry<K, int[]> e: cells.entrySet()) {
+            ret.put(e.getKey(), e.getValue()[0]);
+        }
+        return ret;
+    }
+    
+    private static final <T, K> Map<K, Double> aggregateDouble(Apply<? super T,K> key, Apply<? super T,Double> value, DoubleMonoid m, Iterable<T> xs) {
+        Map<K, double[]> cells = newMap();
+        for (T t: xs) {
+            K k = key.apply(t);
+            double[] cell = cells.get(k);
+            if (cell == null) {
+                cell = new double[] {m.zeroDouble()};
+                cells.put(k, cell);
+            }
+            cell[0] = m.applyDouble(cell[0], value.apply(t));
+        }
+        Map<K, Double> ret = newMapOfSize(cells.size() * 4 / 3 + 1);
+        for (Map.Entry<K, double[]> e: cells.entrySet()) {
+            ret.put(e.getKey(), e.getValue()[0]);
+        }
+        return ret;
+    }
+    
     static final <T> T head(Iterable<T> xs) {
-        return xs == null ? null : xs.iterator().next();
+        return xs == null ? null : firstIterator(xs).next();
+    }
+    
+    /**
+     * Iterator for when only the first element is needed.
+     */
+    private static final <T> Iterator<T> firstIterator(Iterable<T> xs) {
+        return xs instanceof SortingIterable ? ((SortingIterable<T>)xs).iterator(1) : xs.iterator();
     }
     
     static final <T> Option<T> headOption(Iterable<T> xs) {
         if (xs == null) {
             return null;
         }
-        Iterator<T> it = xs.iterator();
+        Iterator<T> it = firstIterator(xs);
         if (it.hasNext()) {
             return Some(it.next());
         } else {
@@ -237,95 +376,41 @@ final class FunctionalImpl {
     }
     
     static final <T> Iterable<T> take(long amount, Iterable<T> xs) {
+        // e.g. concatenated arrays can be cut without iterating. Parts that may still change
+        // must be cut only when iterated, so they are left to TakingIterable.
+        if (xs instanceof ConcatenatingIterable && ((ConcatenatingIterable<T>)xs).fixedSize) {
+            for (Pair<Iterable<T>,Iterable<T>> p: ((ConcatenatingIterable<T>)xs).splitAt(amount)) {
+                return p.left;
+            }
+        }
+        for (List<T> list: Iterables.randomAccess(xs)) {
+            return new Iterables.TakingList<T>(list, amount);
+        }
         return xs == null ? null : new Iterables.TakingIterable<T>(xs, amount);
     }
 
     static final <T> Iterable<T> drop(long amount, Iterable<T> xs) {
+        if (xs instanceof ConcatenatingIterable && ((ConcatenatingIterable<T>)xs).fixedSize) {
+            for (Pair<Iterable<T>,Iterable<T>> p: ((ConcatenatingIterable<T>)xs).splitAt(amount)) {
+                return p.right;
+            }
+        }
+        for (List<T> list: Iterables.randomAccess(xs)) {
+            return new Iterables.DroppingList<T>(list, amount);
+        }
         return xs == null ? null : new Iterables.DroppingIterable<T>(xs, amount);
     }
     
-    static final <T> Iterable<T> takeWhile(final Apply<? super T, Boolean> predicate, final Iterable<T> xs) {
-        return xs == null ? null : new Iterable<T>() {
-            public final Iterator<T> iterator() {
-                return new Iterator<T>() {
-                    private Option<T> next;
-                    private Iterator<T> source = xs.iterator();
-                    {
-                        readNext();
-                    }
-
-                    public final boolean hasNext() {
-                        return next.isDefined();
-                    }
-
-                    private final void readNext() {
-                        if (!source.hasNext()) {
-                            next = None();
-                        } else {
-                            T n = source.next();
-                            if (predicate.apply(n)) {
-                                next = Some(n);
-                            } else {
-                                next = None();
-                            }
-                        }
-                    }
-
-                    public final T next() {
-                        if (!next.isDefined()) {
-                            throw new NoSuchElementException();
-                        }
-                        T ret = next.get();
-                        readNext();
-                        return ret;
-                    }
-
-                    public final void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                };
-            }
-        };
+    static final <T> Option<T> nth(long index, Iterable<T> xs) {
+        return xs == null ? null : Iterables.nth(index, xs);
     }
     
-    static final <T> Iterable<T> dropWhile(final Apply<? super T, Boolean> predicate, final Iterable<T> xs) {
-        return xs == null ? null : new Iterable<T>() {
-            public final Iterator<T> iterator() {
-                return new Iterator<T>() {
-                    private boolean dropping = true;
-                    private Iterator<T> source = xs.iterator();
-                    private Option<T> next;
-                    {
-                        readNext();
-                    }
-
-                    public final boolean hasNext() {
-                        return next.isDefined();
-                    }
-
-                    private final void readNext() {
-                        next = source.hasNext() ? Some(source.next()) : Option.<T>None();
-                        while (dropping && next.isDefined() && predicate.apply(next.get())) {
-                            next = source.hasNext() ? Some(source.next()) : Option.<T>None();
-                        }
-                        dropping = false;
-                    }
-
-                    public final T next() {
-                        if (!next.isDefined()) {
-                            throw new NoSuchElementException();
-                        }
-                        T ret = next.get();
-                        readNext();
-                        return ret;
-                    }
-
-                    public final void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                };
-            }
-        };
+    static final <T> Iterable<T> takeWhile(Apply<? super T, Boolean> predicate, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.TakingWhileIterable<T>(xs, predicate);
+    }
+    
+    static final <T> Iterable<T> dropWhile(Apply<? super T, Boolean> predicate, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.DroppingWhileIterable<T>(xs, predicate);
     }
     
     static final <T> Pair<Iterable<T>, Iterable<T>> span(Apply<? super T, Boolean> predicate, Iterable<T> xs) {
@@ -375,6 +460,17 @@ final class FunctionalImpl {
         return new Iterables.SortingIterable<T>(xs, comparator);
     }
     
+    static final <T> Iterable<T> sort(Comparator<? super T> comparator, Iterable<T> xs, int maxInMemory, Serializer<T> serializer) {
+        if (xs == null) {
+            return null;
+        }
+        Option<Long> size = Iterables.resolveSize.apply(xs);
+        if (size.isDefined() && size.get() <= maxInMemory) {
+            return sort(comparator, xs);
+        }
+        return new Iterables.ExternalSortingIterable<T>(xs, comparator, maxInMemory, serializer);
+    }
+    
     static final <T extends SemiGroup<T>> Option<T> reduce(Iterable<? extends T> xs) {
         if (xs == null) {
             return null;
@@ -385,8 +481,128 @@ final class FunctionalImpl {
         return fold(head(xs), xs);
     }
     
+    @SuppressWarnings("unchecked")
     static final <T> T reduce(Monoid<T> m, Iterable<? extends T> xs) {
-        return xs == null ? null : fold(m, cons(m.zero(), xs)).get();
+        if (xs == null) {
+            return null;
+        }
+        if (m instanceof LongMonoid) {
+            return (T)(Long)reduceLong((LongMonoid)m, (Iterable<Long>)xs);
+        }
+        if (m instanceof IntMonoid) {
+            return (T)(Integer)reduceInt((IntMonoid)m, (Iterable<Integer>)xs);
+        }
+        if (m instanceof DoubleMonoid) {
+            return (T)(Double)reduceDouble((DoubleMonoid)m, (Iterable<Double>)xs);
+        }
+        return fold(m.zero(), m, xs);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static final long reduceLong(LongMonoid m, Iterable<Long> xs) {
+        if (xs instanceof LongIterable) {
+            return ((LongIterable)xs).reduce(m);
+        }
+        long ret = m.zeroLong();
+        Option<Tuple2<Long,Long>> bounds = xs instanceof RangeIterable ? ((RangeIterable<Long>)xs).bounds(Enumerables.longs) : Option.<Tuple2<Long,Long>>None();
+        if (bounds.isDefined()) {
+            long to = bounds.get()._2;
+            for (long i = bounds.get()._1; ; ++i) {
+                ret = m.applyLong(ret, i);
+                // like the iterator, which ends at MAX_VALUE if the range is "backwards"
+                if (i == to || i == Long.MAX_VALUE) {
+                    break;
+                }
+            }
+        } else {
+            for (Long x: xs) {
+                ret = m.applyLong(ret, x);
+            }
+        }
+        return ret;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static final int reduceInt(IntMonoid m, Iterable<Integer> xs) {
+        if (xs instanceof IntIterable) {
+            return ((IntIterable)xs).reduce(m);
+        }
+        int ret = m.zeroInt();
+        Option<Tuple2<Integer,Integer>> bounds = xs instanceof RangeIterable ? ((RangeIterable<Integer>)xs).bounds(Enumerables.ints) : Option.<Tuple2<Integer,Integer>>None();
+        if (bounds.isDefined()) {
+            int to = bounds.get()._2;
+            for (int i = bounds.get()._1; ; ++i) {
+                ret = m.applyInt(ret, i);
+                // like the iterator, which ends at MAX_VALUE if the range is "backwards"
+                if (i == to || i == Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+        } else {
+            for (Integer x: xs) {
+                ret = m.applyInt(ret, x);
+            }
+        }
+        return ret;
+    }
+    
+    private static final double reduceDouble(DoubleMonoid m, Iterable<Double> xs) {
+        if (xs instanceof DoubleIterable) {
+            return ((DoubleIterable)xs).reduce(m);
+        }
+        double ret = m.zeroDouble();
+        for (Double x: xs) {
+            ret = m.applyDouble(ret, x);
+        }
+        return ret;
+    }
+    
+    static final long reduce(LongMonoid m, long[] xs) {
+        return reduce(m, xs, 0, xs.length);
+    }
+    
+    static final long reduce(LongMonoid m, long[] xs, int from, int toExclusive) {
+        if (m == (Object)Monoids.longSum) {
+            return ArrayKernels.sum(xs, from, toExclusive);
+        }
+        if (m == (Object)Monoids.longProduct) {
+            return ArrayKernels.product(xs, from, toExclusive);
+        }
+        long ret = m.zeroLong();
+        for (int i = from; i < toExclusive; ++i) {
+            ret = m.applyLong(ret, xs[i]);
+        }
+        return ret;
+    }
+    
+    static final int reduce(IntMonoid m, int[] xs) {
+        return reduce(m, xs, 0, xs.length);
+    }
+    
+    static final int reduce(IntMonoid m, int[] xs, int from, int toExclusive) {
+        if (m == (Object)Monoids.intSum) {
+            return (int)ArrayKernels.sum(xs, from, toExclusive);
+        }
+        if (m == (Object)Monoids.intProduct) {
+            return (int)ArrayKernels.product(xs, from, toExclusive);
+        }
+        int ret = m.zeroInt();
+        for (int i = from; i < toExclusive; ++i) {
+            ret = m.applyInt(ret, xs[i]);
+        }
+        return ret;
+    }
+    
+    static final double reduce(DoubleMonoid m, double[] xs) {
+        return reduce(m, xs, 0, xs.length);
+    }
+    
+    static final double reduce(DoubleMonoid m, double[] xs, int from, int toExclusive) {
+        double ret = m.zeroDouble();
+        for (int i = from; i < toExclusive; ++i) {
+            ret = m.applyDouble(ret, xs[i]);
+        }
+        return ret;
     }
     
     static final <T,Z> Z fold(Z zero, Apply<Map.Entry<? extends Z,? extends T>, Z> f, Iterable<? extends T> xs) {
@@ -395,7 +611,7 @@ final class FunctionalImpl {
         }
         Z ret = zero;
         for (T t : xs) {
-            ret = f.apply(Tuple.of(ret, t));
+            ret = Function2.applyUntuppled(f, ret, t);
         }
         return ret;
     }
@@ -412,7 +628,7 @@ final class FunctionalImpl {
             if (ret == null) {
                 ret = t;
             } else {
-                ret = f.apply(Tuple.of(ret, t));
+                ret = Function2.applyUntuppled(f, ret, t);
             }
         }
         return Option.of(ret);
@@ -426,6 +642,107 @@ final class FunctionalImpl {
         return reduce(Monoids.longProduct, xs);
     }
     
+    static final long sum(int[] xs) {
+        return ArrayKernels.sum(xs, 0, xs.length);
+    }
+    
+    static final long sum(short[] xs) {
+        long ret = 0;
+        for (short x: xs) {
+            ret += x;
+        }
+        return ret;
+    }
+    
+    static final long product(int[] xs) {
+        return ArrayKernels.product(xs, 0, xs.length);
+    }
+    
+    static final long product(short[] xs) {
+        long ret = 1;
+        for (short x: xs) {
+            ret *= x;
+        }
+        return ret;
+    }
+    
+    static final Option<Integer> min(int[] xs) {
+        return xs.length == 0 ? Option.<Integer>None() : Some(ArrayKernels.min(xs, 0, xs.length));
+    }
+    
+    static final Option<Long> min(long[] xs) {
+        return xs.length == 0 ? Option.<Long>None() : Some(ArrayKernels.min(xs, 0, xs.length));
+    }
+    
+    static final Option<Double> min(double[] xs) {
+        return xs.length == 0 ? Option.<Double>None() : Some(ArrayKernels.min(xs, 0, xs.length));
+    }
+    
+    static final Option<Integer> max(int[] xs) {
+        return xs.length == 0 ? Option.<Integer>None() : Some(ArrayKernels.max(xs, 0, xs.length));
+    }
+    
+    static final Option<Long> max(long[] xs) {
+        return xs.length == 0 ? Option.<Long>None() : Some(ArrayKernels.max(xs, 0, xs.length));
+    }
+    
+    static final Option<Double> max(double[] xs) {
+        return xs.length == 0 ? Option.<Double>None() : Some(ArrayKernels.max(xs, 0, xs.length));
+    }
+    
+    static final long dot(int[] xs, int[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return ArrayKernels.dot(xs, ys);
+    }
+    
+    static final long dot(long[] xs, long[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return ArrayKernels.dot(xs, ys);
+    }
+    
+    static final double dot(double[] xs, double[] ys) {
+        checkSameLength(xs.length, ys.length);
+        return ArrayKernels.dot(xs, ys);
+    }
+    
+    private static final void checkSameLength(int a, int b) {
+        if (a != b) {
+            throw new IllegalArgumentException("Lengths differ: " + a + " and " + b);
+        }
+    }
+    
+    static final int[] filter(IntIterable.IntPredicate predicate, int[] xs) {
+        return xs == null ? null : ArrayKernels.filter(predicate, xs);
+    }
+    
+    static final long[] filter(LongIterable.LongPredicate predicate, long[] xs) {
+        return xs == null ? null : ArrayKernels.filter(predicate, xs);
+    }
+    
+    static final double[] filter(DoubleIterable.DoublePredicate predicate, double[] xs) {
+        return xs == null ? null : ArrayKernels.filter(predicate, xs);
+    }
+    
+    static final Option<Double> average(int[] xs) {
+        return xs.length == 0 ? Option.<Double>None() : Some((double)sum(xs) / xs.length);
+    }
+    
+    static final Option<Double> average(long[] xs) {
+        if (xs.length == 0) {
+            return None();
+        }
+        // a long sum could overflow
+        double ret = 0;
+        for (long x: xs) {
+            ret += x;
+        }
+        return Some(ret / xs.length);
+    }
+    
+    static final Option<Double> average(double[] xs) {
+        return xs.length == 0 ? Option.<Double>None() : Some(reduce((DoubleMonoid)Monoids.doubleSum, xs) / xs.length);
+    }
+    
     @SuppressWarnings("unchecked")
     static final <T> Iterable<T> cons(T x, Iterable<? extends T> xs) {
         return concat(Arrays.asList(x), xs);
@@ -433,7 +750,7 @@ final class FunctionalImpl {
     
     @SuppressWarnings("unchecked")
     static final <T> Iterable<T> concat(Iterable<? extends T> a, Iterable<? extends T> b) {
-        return a == null || b == null ? null : new ConcatenatingIterable<T>(Arrays.asList(a, b));
+        return a == null || b == null ? null : ConcatenatingIterable.<T>concat(a, b);
     }
     
     @SuppressWarnings("unchecked")
@@ -441,6 +758,10 @@ final class FunctionalImpl {
         if (xs == null) {
             return null;
         }
+        if (xs instanceof SortingIterable) {
+            // sorting doesn't change the minimum
+            xs = ((SortingIterable<T>)xs).unsorted();
+        }
         xs = newList(xs);
         if (isEmpty(xs)) {
             return None();
@@ -471,6 +792,10 @@ final class FunctionalImpl {
         if (xs == null) {
             return null;
         }
+        if (xs instanceof SortingIterable) {
+            // sorting doesn't change the maximum
+            xs = ((SortingIterable<T>)xs).unsorted();
+        }
         xs = newList(xs);
         if (isEmpty(xs)) {
             return None();
@@ -479,9 +804,21 @@ final class FunctionalImpl {
     }
     
     static final <A,B> Iterable<Tuple2<A, B>> zip(Iterable<A> a, Iterable<B> b) {
+        for (List<A> as: Iterables.randomAccess(a)) {
+            for (List<B> bs: Iterables.randomAccess(b)) {
+                return new Iterables.ZippingList<A,B>(as, bs);
+            }
+        }
         return a == null || b == null ? null : new ZippingIterable<A,B>(a, b);
     }
     
+    static final <A> Iterable<Tuple2<Integer, A>> zipWithIndex(Iterable<A> a) {
+        for (List<A> as: Iterables.randomAccess(a)) {
+            return new Iterables.IndexedList<A>(as);
+        }
+        return a == null ? null : new ZippingIterable<Integer,A>(range(Enumerables.ints, 0), a);
+    }
+    
     @SuppressWarnings("unchecked")
     static final <A,B,C> Iterable<Tuple3<A, B, C>> zip(Iterable<A> a, Iterable<B> b, Iterable<C> c) {
         return map((Transformer<Tuple2<Tuple2<A, B>, C>, Tuple3<A, B, C>>)(Object)zip3Transformer, zip(zip(a, b), c));
@@ -548,23 +885,32 @@ final class FunctionalImpl {
         return sb.toString();
     }
     
+    static final <T> Iterable<T> memoize(Iterable<T> xs) {
+        return xs == null || xs instanceof Iterables.MemoizingIterable ? xs : new Iterables.MemoizingIterable<T>(xs);
+    }
+    
     static final <T> Iterable<T> reverse(Iterable<T> xs) {
+        for (List<T> list: Iterables.randomAccess(xs)) {
+            return new Iterables.ReversingList<T>(list);
+        }
         return xs == null ? null : new Iterables.ReversingIterable<T>(xs);
     }
     
     static final <T> Iterable<T> distinct(Iterable<T> xs) {
-        return filter(new DistinctPredicate<T>(), xs);
+        return xs == null ? null : new Iterables.HashDistinctIterable<T>(xs);
     }
     
-    protected static final class DistinctPredicate<T> extends Predicate<T> {
-        private final Set<T> visited = newSet();
-        @Override
-        public final boolean accept(T candidate) {
-            boolean ret = !visited.contains(candidate);
-            visited.add(candidate);
-            return ret;
-        }
-    };
+    static final <T> Iterable<T> distinctSorted(Iterable<T> xs) {
+        return xs == null ? null : new Iterables.SortedDistinctIterable<T>(xs);
+    }
+    
+    static final <T> Iterable<T> distinctBy(Apply<? super T, Long> fingerprint, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.FingerprintDistinctIterable<T>(xs, fingerprint);
+    }
+    
+    static final <T> Iterable<T> distinctApproximately(long expectedSize, double falsePositiveProbability, Apply<? super T, Long> fingerprint, Iterable<T> xs) {
+        return xs == null ? null : new Iterables.ApproximateDistinctIterable<T>(xs, fingerprint, expectedSize, falsePositiveProbability);
+    }
     
     static final <T,R> Iterable<R> sequence(final T value, Iterable<? extends Apply<? super T,? extends R>> fs) {
         return map(new Transformer<Apply<? super T,? extends R>, R>() {
@@ -1,8 +1,5 @@
 package fi.solita.utils.functional;
 
-import static fi.solita.utils.functional.Collections.newList;
-import static fi.solita.utils.functional.Collections.newMap;
-
 import java.util.List;
 import java.util.Map;
 
@@ -23,7 +20,24 @@ public abstract class FunctionalM {
         return FunctionalImpl.groupBy(f, xs);
     }
     
+    /**
+     * Same as <i>groupBy</i>, but keeps the keys as primitives.
+     */
+    public static final <T> LongMap<List<T>> groupByLong(Apply<? super T,Long> f, Iterable<T> xs) {
+        return FunctionalImpl.groupByLong(f, xs);
+    }
+    
+    /**
+     * Same as reducing each group of <i>groupBy</i> with <i>m</i>, but in a single pass without building the groups.
+     */
+    public static final <T, K, V> Map<K, V> aggregateBy(Apply<? super T,K> key, Apply<? super T,? extends V> value, Monoid<V> m, Iterable<T> xs) {
+        return FunctionalImpl.aggregateBy(key, value, m, xs);
+    }
+    
+    /**
+     * Shares structure with <i>map</i> if it's a PersistentMap, otherwise copies it into one first.
+     */
     public static final <K, V> Map<K, V> with(K key, V value, Map<? extends K, ? extends V> map) {
-        return map == null ? null : newMap(FunctionalImpl.concat(map.entrySet(), newList(Pair.of(key, value))));
+        return map == null ? null : PersistentMap.<K,V>of(map.entrySet()).with(key, value);
     }
 }
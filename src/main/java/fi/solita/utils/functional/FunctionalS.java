@@ -3,11 +3,11 @@ package fi.solita.utils.functional;
 import static fi.solita.utils.functional.Collections.emptyList;
 import static fi.solita.utils.functional.Collections.newArray;
 import static fi.solita.utils.functional.Collections.newList;
-import static fi.solita.utils.functional.Transformers.int2long;
-import static fi.solita.utils.functional.Transformers.short2long;
 
 import java.util.Set;
 
+import fi.solita.utils.functional.Iterables.IntRangeIterable;
+import fi.solita.utils.functional.Iterables.LongRangeIterable;
 import fi.solita.utils.functional.Iterables.RangeIterable;
 
 public abstract class FunctionalS extends FunctionalA {
@@ -16,15 +16,19 @@ public abstract class FunctionalS extends FunctionalA {
     }
     
     public static final long sum(long... xs) {
-        return sum(newList(newArray(xs)));
+        return FunctionalImpl.reduce((LongMonoid)Monoids.longSum, xs);
     }
     
     public static final long sum(int... xs) {
-        return sum(map(int2long, newArray(xs)));
+        return FunctionalImpl.sum(xs);
     }
 
     public static final long sum(short... xs) {
-        return sum(map(short2long, newArray(xs)));
+        return FunctionalImpl.sum(xs);
+    }
+    
+    public static final double sum(double... xs) {
+        return FunctionalImpl.reduce((DoubleMonoid)Monoids.doubleSum, xs);
     }
     
     
@@ -34,15 +38,118 @@ public abstract class FunctionalS extends FunctionalA {
     }
     
     public static final long product(long... xs) {
-        return product(newList(newArray(xs)));
+        return FunctionalImpl.reduce((LongMonoid)Monoids.longProduct, xs);
     }
     
     public static final long product(int... xs) {
-        return product(map(Transformers.int2long, newArray(xs)));
+        return FunctionalImpl.product(xs);
     }
     
     public static final long product(short... xs) {
-        return product(map(Transformers.short2long, newArray(xs)));
+        return FunctionalImpl.product(xs);
+    }
+    
+    public static final double product(double... xs) {
+        return FunctionalImpl.reduce((DoubleMonoid)Monoids.doubleProduct, xs);
+    }
+    
+    
+    
+    public static final long reduce(Monoid<Long> m, long[] xs) {
+        return m instanceof LongMonoid ? FunctionalImpl.reduce((LongMonoid)m, xs) : FunctionalImpl.reduce(m, newList(newArray(xs)));
+    }
+    
+    public static final int reduce(Monoid<Integer> m, int[] xs) {
+        return m instanceof IntMonoid ? FunctionalImpl.reduce((IntMonoid)m, xs) : FunctionalImpl.reduce(m, newList(newArray(xs)));
+    }
+    
+    public static final double reduce(Monoid<Double> m, double[] xs) {
+        return m instanceof DoubleMonoid ? FunctionalImpl.reduce((DoubleMonoid)m, xs) : FunctionalImpl.reduce(m, newList(newArray(xs)));
+    }
+    
+    
+    
+    public static final Option<Integer> min(int[] xs) {
+        return FunctionalImpl.min(xs);
+    }
+    
+    public static final Option<Long> min(long[] xs) {
+        return FunctionalImpl.min(xs);
+    }
+    
+    public static final Option<Double> min(double[] xs) {
+        return FunctionalImpl.min(xs);
+    }
+    
+    public static final Option<Integer> max(int[] xs) {
+        return FunctionalImpl.max(xs);
+    }
+    
+    public static final Option<Long> max(long[] xs) {
+        return FunctionalImpl.max(xs);
+    }
+    
+    public static final Option<Double> max(double[] xs) {
+        return FunctionalImpl.max(xs);
+    }
+    
+    /**
+     * Lazy, except that <i>a</i> is copied and <i>b</i> is read into a primitive set right away.
+     */
+    public static final IntIterable subtract(int[] a, int[] b) {
+        return FunctionalImpl.subtract(a, b);
+    }
+    
+    /**
+     * Lazy, except that <i>a</i> is copied and <i>b</i> is read into a primitive set right away.
+     */
+    public static final LongIterable subtract(long[] a, long[] b) {
+        return FunctionalImpl.subtract(a, b);
+    }
+    
+    public static final long dot(int[] xs, int[] ys) {
+        return FunctionalImpl.dot(xs, ys);
+    }
+    
+    public static final long dot(long[] xs, long[] ys) {
+        return FunctionalImpl.dot(xs, ys);
+    }
+    
+    public static final double dot(double[] xs, double[] ys) {
+        return FunctionalImpl.dot(xs, ys);
+    }
+    
+    public static final int[] filter(IntIterable.IntPredicate predicate, int[] xs) {
+        return FunctionalImpl.filter(predicate, xs);
+    }
+    
+    public static final long[] filter(LongIterable.LongPredicate predicate, long[] xs) {
+        return FunctionalImpl.filter(predicate, xs);
+    }
+    
+    public static final double[] filter(DoubleIterable.DoublePredicate predicate, double[] xs) {
+        return FunctionalImpl.filter(predicate, xs);
+    }
+    
+    /**
+     * @return <i>None</i> if <i>xs</i> is empty
+     */
+    public static final Option<Double> average(int[] xs) {
+        return FunctionalImpl.average(xs);
+    }
+    
+    /**
+     * @return <i>None</i> if <i>xs</i> is empty
+     */
+    public static final Option<Double> average(long[] xs) {
+        return FunctionalImpl.average(xs);
+    }
+    
+    /**
+     * @return <i>None</i> if <i>xs</i> is empty
+     */
+    public static final Option<Double> average(double[] xs) {
+        return FunctionalImpl.average(xs);
     }
     
     
@@ -65,16 +172,32 @@ public abstract class FunctionalS extends FunctionalA {
         return new RangeIterable<Short>(Enumerables.shorts, from, toInclusive, toInclusive - from + 1);
     }
     
+    /**
+     * Same as <i>intRange</i>, which can also be iterated without boxing.
+     */
     public static final Iterable<Integer> range(int from, int toInclusive) {
-        if (toInclusive < from)
-            return emptyList();
-        return new RangeIterable<Integer>(Enumerables.ints, from, toInclusive, toInclusive - from + 1);
+        return intRange(from, toInclusive);
     }
 
+    /**
+     * Same as <i>longRange</i>, which can also be iterated without boxing.
+     */
     public static final Iterable<Long> range(long from, long toInclusive) {
-        if (toInclusive < from)
-            return emptyList();
-        return new RangeIterable<Long>(Enumerables.longs, from, toInclusive, toInclusive - from + 1);
+        return longRange(from, toInclusive);
+    }
+
+    /**
+     * Can be iterated without boxing, see {@link IntIterable}.
+     */
+    public static final IntIterable intRange(int from, int toInclusive) {
+        return new IntRangeIterable(from, toInclusive);
+    }
+
+    /**
+     * Can be iterated without boxing, see {@link LongIterable}.
+     */
+    public static final LongIterable longRange(long from, long toInclusive) {
+        return new LongRangeIterable(from, toInclusive);
     }
     
     
@@ -0,0 +1,122 @@
+package fi.solita.utils.functional;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map from primitive ints to primitive ints, so that there are no boxes or entry objects.
+ * Stores the entries widened in a {@link LongLongMap}, whose arithmetic wraps the same in the low 32 bits.
+ * The <i>Map</i> interface boxes, and its views don't support removal.
+ */
+public final class IntIntMap extends AbstractMap<Integer,Integer> {
+    private final LongLongMap map;
+    
+    public IntIntMap() {
+        this(16);
+    }
+    
+    public IntIntMap(long expectedSize) {
+        map = new LongLongMap(expectedSize);
+    }
+    
+    @Override
+    public final int size() {
+        return map.size();
+    }
+    
+    public final boolean containsKey(int key) {
+        return map.containsKey((long)key);
+    }
+    
+    public final int get(int key, int defaultValue) {
+        return (int)map.get(key, defaultValue);
+    }
+    
+    public final void put(int key, int value) {
+        map.put((long)key, (long)value);
+    }
+    
+    /**
+     * Adds <i>delta</i> to the value of <i>key</i>, which is 0 when missing.
+     * @return the new value.
+     */
+    public final int addTo(int key, int delta) {
+        return (int)map.addTo(key, delta);
+    }
+    
+    /**
+     * @return whether <i>key</i> was in the map.
+     */
+    public final boolean remove(int key) {
+        return map.remove((long)key);
+    }
+    
+    @Override
+    public final Integer get(Object key) {
+        if (key instanceof Integer) {
+            int k = (Integer)key;
+            if (containsKey(k)) {
+                return get(k, 0);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public final Integer put(Integer key, Integer value) {
+        Integer ret = get(key);
+        put(key.intValue(), value.intValue());
+        return ret;
+    }
+    
+    @Override
+    public final Integer remove(Object key) {
+        Integer ret = get(key);
+        if (ret != null) {
+            remove(((Integer)key).intValue());
+        }
+        return ret;
+    }
+    
+    @Override
+    public final boolean containsKey(Object key) {
+        return key instanceof Integer && containsKey(((Integer)key).intValue());
+    }
+    
+    @Override
+    public final void clear() {
+        map.clear();
+    }
+    
+    @Override
+    public final Set<Map.Entry<Integer,Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer,Integer>>() {
+            @Override
+            public final int size() {
+                return map.size();
+            }
+            
+            @Override
+            public final Iterator<Map.Entry<Integer,Integer>> iterator() {
+                final Iterator<Map.Entry<Long,Long>> it = map.entrySet().iterator();
+                return new Iterator<Map.Entry<Integer,Integer>>() {
+                    public final boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    
+                    public final Map.Entry<Integer,Integer> next() {
+                        Map.Entry<Long,Long> e = it.next();
+                        return new AbstractMap.SimpleImmutableEntry<Integer,Integer>(e.getKey().intValue(), e.getValue().intValue());
+                    }
+                    
+                    public final void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
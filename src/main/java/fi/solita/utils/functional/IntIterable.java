@@ -0,0 +1,193 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Option.None;
+import static fi.solita.utils.functional.Option.Some;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterable of primitive ints. Iterating with <i>intIterator</i>, and the operations here, don't box.
+ * Like the rest of the library, <i>map</i> and <i>filter</i> are lazy.
+ */
+public abstract class IntIterable implements Iterable<Integer>, Iterables.PossiblySizeAwareIterable<Integer> {
+    public static interface IntIterator {
+        boolean hasNext();
+        int nextInt();
+    }
+    
+    public static interface IntTransformer {
+        int transform(int source);
+    }
+    
+    public static interface IntPredicate {
+        boolean accept(int candidate);
+    }
+    
+    public abstract IntIterator intIterator();
+    
+    /**
+     * @return the number of elements, if known without iterating.
+     */
+    public Option<Long> size() {
+        return None();
+    }
+    
+    public final Iterator<Integer> iterator() {
+        final IntIterator it = intIterator();
+        return new Iterator<Integer>() {
+            public final boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public final Integer next() {
+                return it.nextInt();
+            }
+
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    public final IntIterable map(final IntTransformer f) {
+        final IntIterable source = this;
+        return new IntIterable() {
+            @Override
+            public final IntIterator intIterator() {
+                final IntIterator it = source.intIterator();
+                return new IntIterator() {
+                    public final boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    
+                    public final int nextInt() {
+                        return f.transform(it.nextInt());
+                    }
+                };
+            }
+            
+            @Override
+            public final Option<Long> size() {
+                return source.size();
+            }
+        };
+    }
+    
+    public final IntIterable filter(final IntPredicate p) {
+        final IntIterable source = this;
+        return new IntIterable() {
+            @Override
+            public final IntIterator intIterator() {
+                final IntIterator it = source.intIterator();
+                return new IntIterator() {
+                    private boolean ready = false;
+                    private int next;
+                    
+                    public final boolean hasNext() {
+                        while (!ready && it.hasNext()) {
+                            next = it.nextInt();
+                            ready = p.accept(next);
+                        }
+                        return ready;
+                    }
+                    
+                    public final int nextInt() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        ready = false;
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+    
+    /**
+     * Lazy. Keeps the elements seen so far in a primitive set.
+     */
+    public final IntIterable distinct() {
+        final IntIterable source = this;
+        return new IntIterable() {
+            @Override
+            public final IntIterator intIterator() {
+                final IntSet visited = new IntSet();
+                return source.filter(new IntPredicate() {
+                    public final boolean accept(int candidate) {
+                        return visited.add(candidate);
+                    }
+                }).intIterator();
+            }
+        };
+    }
+    
+    public int fold(int zero, IntSemiGroup f) {
+        int ret = zero;
+        for (IntIterator it = intIterator(); it.hasNext();) {
+            ret = f.applyInt(ret, it.nextInt());
+        }
+        return ret;
+    }
+    
+    public final int reduce(IntMonoid m) {
+        return fold(m.zeroInt(), m);
+    }
+    
+    public long sum() {
+        long ret = 0;
+        for (IntIterator it = intIterator(); it.hasNext();) {
+            ret += it.nextInt();
+        }
+        return ret;
+    }
+    
+    public Option<Integer> min() {
+        IntIterator it = intIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        int ret = it.nextInt();
+        while (it.hasNext()) {
+            int x = it.nextInt();
+            if (x < ret) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public Option<Integer> max() {
+        IntIterator it = intIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        int ret = it.nextInt();
+        while (it.hasNext()) {
+            int x = it.nextInt();
+            if (x > ret) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public int[] toArray() {
+        Option<Long> size = size();
+        int[] ret = new int[Iterables.arrayCapacity(size)];
+        int i = 0;
+        for (IntIterator it = intIterator(); it.hasNext();) {
+            if (i == ret.length) {
+                ret = Arrays.copyOf(ret, Iterables.grownCapacity(ret.length));
+            }
+            ret[i++] = it.nextInt();
+        }
+        return i == ret.length ? ret : Arrays.copyOf(ret, i);
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.toString(toArray());
+    }
+}
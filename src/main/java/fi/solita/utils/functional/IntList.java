@@ -0,0 +1,81 @@
+package fi.solita.utils.functional;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list backed by a int array. Elements are boxed only when read through the <i>List</i> interface,
+ * <i>getInt</i> and <i>ints</i> don't box.
+ */
+public final class IntList extends Iterables.PrimitiveList<Integer> {
+    private final int[] xs;
+
+    IntList(int[] xs) {
+        this.xs = xs;
+    }
+
+    public final int getInt(int index) {
+        return xs[index];
+    }
+
+    /**
+     * @return a view of this list that can be iterated without boxing.
+     */
+    public final IntIterable ints() {
+        return new Iterables.IntArrayIterable(xs, 0, xs.length);
+    }
+
+    public final int[] toIntArray() {
+        return xs.clone();
+    }
+
+    @Override
+    public final Integer get(int index) {
+        return xs[index];
+    }
+
+    @Override
+    public final int size() {
+        return xs.length;
+    }
+
+    @Override
+    public final boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public final int indexOf(Object o) {
+        if (o instanceof Integer) {
+            int x = (Integer)o;
+            for (int i = 0; i < xs.length; ++i) {
+                if (xs[i] == x) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int lastIndexOf(Object o) {
+        if (o instanceof Integer) {
+            int x = (Integer)o;
+            for (int i = xs.length - 1; i >= 0; --i) {
+                if (xs[i] == x) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Arrays.hashCode(xs);
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        return o instanceof IntList ? Arrays.equals(xs, ((IntList)o).xs) : super.equals(o);
+    }
+}
@@ -0,0 +1,5 @@
+package fi.solita.utils.functional;
+
+public interface IntMonoid extends IntSemiGroup, Monoid<Integer> {
+    int zeroInt();
+}
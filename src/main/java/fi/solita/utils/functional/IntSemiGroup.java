@@ -0,0 +1,8 @@
+package fi.solita.utils.functional;
+
+/**
+ * A SemiGroup that can also combine unboxed ints.
+ */
+public interface IntSemiGroup extends SemiGroup<Integer> {
+    int applyInt(int first, int second);
+}
@@ -2,6 +2,7 @@ package fi.solita.utils.functional;
 
 import static fi.solita.utils.functional.Collections.newList;
 import static fi.solita.utils.functional.Collections.newListOfSize;
+import static fi.solita.utils.functional.Collections.newSet;
 import static fi.solita.utils.functional.Functional.drop;
 import static fi.solita.utils.functional.Functional.forall;
 import static fi.solita.utils.functional.Functional.isEmpty;
@@ -13,6 +14,18 @@ import static fi.solita.utils.functional.FunctionalA.min;
 import static fi.solita.utils.functional.Option.None;
 import static fi.solita.utils.functional.Option.Some;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -21,6 +34,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
 
 public abstract class Iterables {
     // cache most used Some-object to reduce object allocation
@@ -36,6 +51,32 @@ public abstract class Iterables {
         return size < someCache.length ? someCache[(int)size] : Some(size);
     }
     
+    // some VMs reserve header words in an array
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    
+    /**
+     * Initial length of an array for collecting elements of the given size.
+     */
+    static final int arrayCapacity(Option<Long> size) {
+        if (!size.isDefined()) {
+            return 16;
+        }
+        if (size.get() > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required array size too large: " + size.get());
+        }
+        return (int)(long)size.get();
+    }
+    
+    /**
+     * Length to grow a full array of the given length to.
+     */
+    static final int grownCapacity(int length) {
+        if (length >= MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        return (int)Math.min(MAX_ARRAY_SIZE, Math.max(16, 2l * length));
+    }
+    
     public static final Transformer<Iterable<?>,Option<Long>> resolveSize = new Transformer<Iterable<?>,Option<Long>>() {
         public final Option<Long> transform(Iterable<?> source) {
             if (source instanceof Collection) {
@@ -91,8 +132,75 @@ public abstract class Iterables {
             return getClass().getSimpleName() + Collections.newList(this).toString();
         }
     }
+
+    /**
+     * An Iterable that can be partitioned into consecutive parts without iterating or copying it.
+     */
+    static interface SplittableIterable<T> extends PossiblySizeAwareIterable<T> {
+        /**
+         * @return this as two consecutive non-empty parts of roughly equal size, or <i>None</i> if this cannot be split.
+         */
+        public abstract Option<Pair<Iterable<T>,Iterable<T>>> split();
+        
+        /**
+         * @return the first <i>n</i> elements and the rest, or <i>None</i> if this cannot be split exactly there.
+         */
+        public abstract Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n);
+    }
+    
+    @SuppressWarnings("unchecked")
+    static final <T> Option<Pair<Iterable<T>,Iterable<T>>> split(Iterable<T> xs) {
+        if (xs instanceof SplittableIterable) {
+            return ((SplittableIterable<T>)xs).split();
+        }
+        if (xs instanceof List && xs instanceof RandomAccess) {
+            return splitAt(((List<T>)xs).size() / 2, xs);
+        }
+        return None();
+    }
+    
+    @SuppressWarnings("unchecked")
+    static final <T> Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n, Iterable<T> xs) {
+        if (xs instanceof SplittableIterable) {
+            return ((SplittableIterable<T>)xs).splitAt(n);
+        }
+        if (xs instanceof List && xs instanceof RandomAccess) {
+            List<T> list = (List<T>)xs;
+            if (n <= 0 || n >= list.size()) {
+                return None();
+            }
+            return parts(list.subList(0, (int)n), list.subList((int)n, list.size()));
+        }
+        return None();
+    }
+    
+    private static final <T> Option<Pair<Iterable<T>,Iterable<T>>> parts(Iterable<T> first, Iterable<T> second) {
+        return Some(Pair.of(first, second));
+    }
+
+    /**
+     * Splits <i>xs</i> into consecutive chunks by halving it until the parts have at most <i>chunkSize</i> elements,
+     * there would be more than <i>maxChunks</i> of them, or they cannot be split any further.
+     */
+    static final <T> List<Iterable<T>> chunks(Iterable<T> xs, long chunkSize, int maxChunks) {
+        List<Iterable<T>> ret = newList();
+        chunksTo(xs, chunkSize, maxChunks, ret);
+        return ret;
+    }
+
+    private static final <T> void chunksTo(Iterable<T> xs, long chunkSize, int maxChunks, List<Iterable<T>> ret) {
+        Option<Long> size = resolveSize.apply(xs);
+        if (maxChunks >= 2 && !(size.isDefined() && size.get() <= chunkSize)) {
+            for (Pair<Iterable<T>,Iterable<T>> halves: split(xs)) {
+                chunksTo(halves.left, chunkSize, maxChunks / 2, ret);
+                chunksTo(halves.right, chunkSize, maxChunks - maxChunks / 2, ret);
+                return;
+            }
+        }
+        ret.add(xs);
+    }
     
-    static final class RangeIterable<T> extends MyIterable<T> {
+    static final class RangeIterable<T> extends MyIterable<T> implements SplittableIterable<T> {
         private final Enumerable<T> enumeration;
         private final Option<T> from;
         private final Option<T> toInclusive;
@@ -149,289 +257,1008 @@ public abstract class Iterables {
         public final Option<Long> size() {
             return knownSize.isDefined() ? wrapSome(knownSize.get()) : Option.<Long>None();
         }
-    }
-
-    static final class RepeatingIterable<T> extends MyIterable<T> {
-        private final T value;
-        private final Long amount;
-
-        public RepeatingIterable(T value) {
-            this.value = value;
-            this.amount = null;
+        
+        /**
+         * @return bounds of this range if it is finite and enumerated by <i>e</i>, for iterating it with a primitive loop.
+         */
+        final Option<Tuple2<T,T>> bounds(Enumerable<T> e) {
+            return enumeration == e && toInclusive.isDefined() ? Some(Tuple.of(from.get(), toInclusive.get())) : Option.<Tuple2<T,T>>None();
         }
-
-        public RepeatingIterable(T value, long amount) {
-            this.value = value;
-            this.amount = amount;
+        
+        public final Option<Pair<Iterable<T>,Iterable<T>>> split() {
+            return knownSize.isDefined() ? splitAt(knownSize.get() / 2) : Option.<Pair<Iterable<T>,Iterable<T>>>None();
         }
-
         
-        public final Option<Long> size() {
-            return amount != null ? wrapSome(amount) : Option.<Long>None();
+        @SuppressWarnings("unchecked")
+        public final Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n) {
+            if (!knownSize.isDefined() || n <= 0 || n >= knownSize.get()) {
+                return None();
+            }
+            long size = knownSize.get();
+            for (Tuple2<Long,Long> b: ((RangeIterable<Long>)this).bounds(Enumerables.longs)) {
+                return parts((Iterable<T>)new RangeIterable<Long>(Enumerables.longs, b._1, b._1 + n - 1, n),
+                             (Iterable<T>)new RangeIterable<Long>(Enumerables.longs, b._1 + n, b._2, size - n));
+            }
+            for (Tuple2<Integer,Integer> b: ((RangeIterable<Integer>)this).bounds(Enumerables.ints)) {
+                return parts((Iterable<T>)new RangeIterable<Integer>(Enumerables.ints, b._1, (int)(b._1 + n - 1), n),
+                             (Iterable<T>)new RangeIterable<Integer>(Enumerables.ints, (int)(b._1 + n), b._2, size - n));
+            }
+            return None();
         }
+    }
 
-        
-        public final Iterator<T> iterator() {
-            return new Iterator<T>() {
-                private int current = 0;
+    static final class IntRangeIterable extends IntIterable implements SplittableIterable<Integer> {
+        private final int from;
+        private final int toInclusive;
+
+        /**
+         * Empty if <i>toInclusive</i> is smaller than <i>from</i>.
+         */
+        public IntRangeIterable(int from, int toInclusive) {
+            this.from = from;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        public final IntIterator intIterator() {
+            return new IntIterator() {
+                // long, so that a range ending at Integer.MAX_VALUE ends
+                private long next = from;
                 
                 public final boolean hasNext() {
-                    return amount == null || current < amount;
+                    return next <= toInclusive;
                 }
 
-                
-                public final T next() {
-                    if (amount != null && current == amount) {
+                public final int nextInt() {
+                    if (next > toInclusive) {
                         throw new NoSuchElementException();
                     }
-                    current++;
-                    return value;
-                }
-
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+                    return (int)next++;
                 }
             };
         }
-    }
-
-    static final class TransposingIterable<T> extends MyIterable<Iterable<T>> implements ForceableIterable {
-        private final Iterable<? extends Iterable<T>> elements;
-        private boolean force = false;
-
-        public TransposingIterable(Iterable<? extends Iterable<T>> elements) {
-            this.elements = elements;
+        
+        @Override
+        public final Option<Long> size() {
+            return wrapSome(Math.max(0, (long)toInclusive - from + 1));
         }
         
-        public final void completeIterationNeeded() {
-            this.force = true;
+        @Override
+        public final int fold(int zero, IntSemiGroup f) {
+            int ret = zero;
+            for (long i = from; i <= toInclusive; ++i) {
+                ret = f.applyInt(ret, (int)i);
+            }
+            return ret;
         }
         
-        public final Iterator<Iterable<T>> iterator() {
-            return new Iterator<Iterable<T>>() {
-                @SuppressWarnings("unchecked")
-                private final List<Iterator<T>> iterators = newList(map((Transformer<Iterable<T>,Iterator<T>>)(Object)(force ? toIteratorForced : toIterator), elements));
-                
+        public final Option<Pair<Iterable<Integer>,Iterable<Integer>>> split() {
+            return splitAt(size().get() / 2);
+        }
+        
+        public final Option<Pair<Iterable<Integer>,Iterable<Integer>>> splitAt(long n) {
+            if (n <= 0 || n >= size().get()) {
+                return None();
+            }
+            return parts((Iterable<Integer>)new IntRangeIterable(from, (int)(from + n - 1)), new IntRangeIterable((int)(from + n), toInclusive));
+        }
+    }
+    
+    static final class LongRangeIterable extends LongIterable implements SplittableIterable<Long> {
+        private final long from;
+        private final long toInclusive;
+
+        /**
+         * Empty if <i>toInclusive</i> is smaller than <i>from</i>.
+         */
+        public LongRangeIterable(long from, long toInclusive) {
+            this.from = from;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        public final LongIterator longIterator() {
+            return new LongIterator() {
+                private long next = from;
+                private boolean done = toInclusive < from;
                 
                 public final boolean hasNext() {
-                    return !iterators.isEmpty() && forall(hasNext, iterators);
+                    return !done;
                 }
 
-                @SuppressWarnings("unchecked")
-                
-                public final Iterable<T> next() {
-                    if (!hasNext()) {
+                public final long nextLong() {
+                    if (done) {
                         throw new NoSuchElementException();
                     }
-                    return newList(map((Transformer<Iterator<T>, T>)(Object)next, iterators));
-                }
-
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+                    // compared before incrementing, so that a range ending at Long.MAX_VALUE ends
+                    done = next == toInclusive;
+                    return done ? next : next++;
                 }
             };
         }
-
         
+        @Override
         public final Option<Long> size() {
-            return None();
+            if (toInclusive < from) {
+                return wrapSome(0);
+            }
+            // clamped, since the size of a range over almost all longs doesn't fit in a long
+            long lastIndex = toInclusive - from;
+            return wrapSome(lastIndex < 0 || lastIndex == Long.MAX_VALUE ? Long.MAX_VALUE : lastIndex + 1);
         }
-    }
-
-    static final class ZippingIterable<A,B> extends MyIterable<Tuple2<A, B>> implements ForceableIterable {
-        private final Iterable<A> elements1;
-        private final Iterable<B> elements2;
-        private boolean force = false;
-
-        public ZippingIterable(Iterable<A> elements1, Iterable<B> elements2) {
-            this.elements1 = elements1;
-            this.elements2 = elements2;
+        
+        @Override
+        public final long fold(long zero, LongSemiGroup f) {
+            long ret = zero;
+            if (toInclusive < from) {
+                return ret;
+            }
+            for (long i = from; ; ++i) {
+                ret = f.applyLong(ret, i);
+                if (i == toInclusive) {
+                    return ret;
+                }
+            }
         }
-
-        public final void completeIterationNeeded() {
-            this.force = true;
+        
+        public final Option<Pair<Iterable<Long>,Iterable<Long>>> split() {
+            return splitAt(size().get() / 2);
         }
         
-        public final Iterator<Tuple2<A, B>> iterator() {
-            if (force) {
-                if (elements1 instanceof ForceableIterable) {
-                    ((ForceableIterable)elements1).completeIterationNeeded();
-                }
-                if (elements2 instanceof ForceableIterable) {
-                    ((ForceableIterable)elements2).completeIterationNeeded();
-                }
+        public final Option<Pair<Iterable<Long>,Iterable<Long>>> splitAt(long n) {
+            if (n <= 0 || n >= size().get()) {
+                return None();
             }
-            return new Iterator<Tuple2<A, B>>() {
-                private final Iterator<A> it1 = elements1.iterator();
-                private final Iterator<B> it2 = elements2.iterator();
-                
+            return parts((Iterable<Long>)new LongRangeIterable(from, from + n - 1), new LongRangeIterable(from + n, toInclusive));
+        }
+    }
+    
+    /**
+     * View of <i>xs</i> from <i>from</i> to <i>to</i> (exclusive). Changes to the array are seen.
+     */
+    static final class IntArrayIterable extends IntIterable implements SplittableIterable<Integer> {
+        private final int[] xs;
+        private final int from;
+        private final int to;
+
+        public IntArrayIterable(int[] xs, int from, int to) {
+            this.xs = xs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public final IntIterator intIterator() {
+            return new IntIterator() {
+                private int next = from;
                 
                 public final boolean hasNext() {
-                    return it1.hasNext() && it2.hasNext();
-                }
-
-                
-                public final Tuple2<A, B> next() {
-                    return Tuple.of(it1.next(), it2.next());
+                    return next < to;
                 }
 
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+                public final int nextInt() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return xs[next++];
                 }
             };
         }
-
         
+        @Override
         public final Option<Long> size() {
-            for (long a: resolveSize.apply(elements1)) {
-                for (long b: resolveSize.apply(elements2)) {
-                    return wrapSome(Math.min(a,b));
-                }
-            }
-            return None();
+            return wrapSome(to - from);
         }
-    }
-
-    static class ConcatenatingIterable<T> extends MyIterable<T> implements ForceableIterable {
-        private final Iterable<? extends Iterable<? extends T>> elements;
-        private boolean force = false;
-
-        public ConcatenatingIterable(Iterable<? extends Iterable<? extends T>> elements) {
-            if (elements instanceof Collection) {
-                this.elements = flattenNestedConcats((Collection<? extends Iterable<? extends T>>)elements);
-            } else {
-                this.elements = elements;
+        
+        @Override
+        public final int fold(int zero, IntSemiGroup f) {
+            int ret = zero;
+            for (int i = from; i < to; ++i) {
+                ret = f.applyInt(ret, xs[i]);
             }
+            return ret;
         }
         
-        public final void completeIterationNeeded() {
-            this.force = true;
+        @Override
+        public final long sum() {
+            return ArrayKernels.sum(xs, from, to);
         }
         
-        @SuppressWarnings("unchecked")
-        private final Collection<? extends Iterable<? extends T>> flattenNestedConcats(Collection<? extends Iterable<? extends T>> elements) {
-            List<Iterable<? extends T>> ret = newList();
-            for (Iterable<? extends T> es: elements) {
-                if (es instanceof ConcatenatingIterable && ((ConcatenatingIterable<T>) es).elements instanceof Collection) {
-                    ret.addAll(flattenNestedConcats((Collection<? extends Iterable<? extends T>>)((ConcatenatingIterable<T>)es).elements));
-                } else {
-                    ret.add(es);
-                }
-            }
-            return ret;
+        @Override
+        public final Option<Integer> min() {
+            return from == to ? Option.<Integer>None() : Some(ArrayKernels.min(xs, from, to));
         }
-
-        public Option<Long> size() {
-            long s = 0;
-            for (Option<Long> size: map(resolveSize, elements)) {
-                if (size.isDefined()) {
-                    s += size.get();
-                } else {
-                    return Option.None();
-                }
-            }
-            return wrapSome(s);
+        
+        @Override
+        public final Option<Integer> max() {
+            return from == to ? Option.<Integer>None() : Some(ArrayKernels.max(xs, from, to));
         }
-
         
-        public final Iterator<T> iterator() {
-            return new Iterator<T>() {
-                @SuppressWarnings("unchecked")
-                private final Iterator<Iterator<? extends T>> it = Functional.map((Transformer<Iterable<? extends T>,Iterator<? extends T>>)(Object)(force ? toIteratorForced : toIterator), elements).iterator();
-
-                private Iterator<? extends T> lastUsed = it.hasNext() ? it.next() : java.util.Collections.<T>emptyList().iterator();
-
+        @Override
+        public final int[] toArray() {
+            return Arrays.copyOfRange(xs, from, to);
+        }
+        
+        public final Option<Pair<Iterable<Integer>,Iterable<Integer>>> split() {
+            return splitAt((to - from) / 2);
+        }
+        
+        public final Option<Pair<Iterable<Integer>,Iterable<Integer>>> splitAt(long n) {
+            if (n <= 0 || n >= to - from) {
+                return None();
+            }
+            return parts((Iterable<Integer>)new IntArrayIterable(xs, from, (int)(from + n)), new IntArrayIterable(xs, (int)(from + n), to));
+        }
+    }
+    
+    /**
+     * View of <i>xs</i> from <i>from</i> to <i>to</i> (exclusive). Changes to the array are seen.
+     */
+    static final class LongArrayIterable extends LongIterable implements SplittableIterable<Long> {
+        private final long[] xs;
+        private final int from;
+        private final int to;
+
+        public LongArrayIterable(long[] xs, int from, int to) {
+            this.xs = xs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public final LongIterator longIterator() {
+            return new LongIterator() {
+                private int next = from;
                 
                 public final boolean hasNext() {
-                    while (!lastUsed.hasNext() && it.hasNext()) {
-                        lastUsed = it.next();
-                    }
-                    return lastUsed.hasNext();
-                }
-
-                
-                public final T next() {
-                    hasNext();
-                    return lastUsed.next();
+                    return next < to;
                 }
 
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+                public final long nextLong() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return xs[next++];
                 }
             };
         }
-    }
-    
-    static final class FlatteningIterable<T> extends ConcatenatingIterable<T> {
-        public FlatteningIterable(Iterable<? extends Iterable<? extends T>> elements) {
-            super(elements);
+        
+        @Override
+        public final Option<Long> size() {
+            return wrapSome(to - from);
         }
         
+        @Override
+        public final long fold(long zero, LongSemiGroup f) {
+            long ret = zero;
+            for (int i = from; i < to; ++i) {
+                ret = f.applyLong(ret, xs[i]);
+            }
+            return ret;
+        }
         
-        public Option<Long> size() {
-            return None();
+        @Override
+        public final long sum() {
+            return ArrayKernels.sum(xs, from, to);
         }
-    }
-
-    static final class FilteringIterable<T> extends MyIterable<T> implements ForceableIterable {
-        private final Iterable<T> iterable;
-        private final Apply<? super T, Boolean> filter;
-        private boolean force = false;
-
-        public FilteringIterable(Iterable<T> iterable, Apply<? super T, Boolean> filter) {
-            this.iterable = iterable;
-            this.filter = filter;
+        
+        @Override
+        public final Option<Long> min() {
+            return from == to ? Option.<Long>None() : Some(ArrayKernels.min(xs, from, to));
         }
-
-        public final void completeIterationNeeded() {
-            this.force = true;
+        
+        @Override
+        public final Option<Long> max() {
+            return from == to ? Option.<Long>None() : Some(ArrayKernels.max(xs, from, to));
         }
         
-        public final Option<Long> size() {
-            return None();
+        @Override
+        public final long[] toArray() {
+            return Arrays.copyOfRange(xs, from, to);
+        }
+        
+        public final Option<Pair<Iterable<Long>,Iterable<Long>>> split() {
+            return splitAt((to - from) / 2);
+        }
+        
+        public final Option<Pair<Iterable<Long>,Iterable<Long>>> splitAt(long n) {
+            if (n <= 0 || n >= to - from) {
+                return None();
+            }
+            return parts((Iterable<Long>)new LongArrayIterable(xs, from, (int)(from + n)), new LongArrayIterable(xs, (int)(from + n), to));
+        }
+    }
+    
+    /**
+     * View of <i>xs</i> from <i>from</i> to <i>to</i> (exclusive). Changes to the array are seen.
+     */
+    static final class DoubleArrayIterable extends DoubleIterable implements SplittableIterable<Double> {
+        private final double[] xs;
+        private final int from;
+        private final int to;
+
+        public DoubleArrayIterable(double[] xs, int from, int to) {
+            this.xs = xs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public final DoubleIterator doubleIterator() {
+            return new DoubleIterator() {
+                private int next = from;
+                
+                public final boolean hasNext() {
+                    return next < to;
+                }
+
+                public final double nextDouble() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return xs[next++];
+                }
+            };
+        }
+        
+        @Override
+        public final Option<Long> size() {
+            return wrapSome(to - from);
+        }
+        
+        @Override
+        public final double fold(double zero, DoubleSemiGroup f) {
+            double ret = zero;
+            for (int i = from; i < to; ++i) {
+                ret = f.applyDouble(ret, xs[i]);
+            }
+            return ret;
+        }
+        
+        @Override
+        public final double sum() {
+            return ArrayKernels.sum(xs, from, to);
+        }
+        
+        @Override
+        public final Option<Double> min() {
+            return from == to ? Option.<Double>None() : Some(ArrayKernels.min(xs, from, to));
+        }
+        
+        @Override
+        public final Option<Double> max() {
+            return from == to ? Option.<Double>None() : Some(ArrayKernels.max(xs, from, to));
+        }
+        
+        @Override
+        public final double[] toArray() {
+            return Arrays.copyOfRange(xs, from, to);
+        }
+        
+        public final Option<Pair<Iterable<Double>,Iterable<Double>>> split() {
+            return splitAt((to - from) / 2);
+        }
+        
+        public final Option<Pair<Iterable<Double>,Iterable<Double>>> splitAt(long n) {
+            if (n <= 0 || n >= to - from) {
+                return None();
+            }
+            return parts((Iterable<Double>)new DoubleArrayIterable(xs, from, (int)(from + n)), new DoubleArrayIterable(xs, (int)(from + n), to));
+        }
+    }
+    
+    static final class RepeatingIterable<T> extends MyIterable<T> implements SplittableIterable<T> {
+        private final T value;
+        private final Long amount;
+
+        public RepeatingIterable(T value) {
+            this.value = value;
+            this.amount = null;
+        }
+
+        public RepeatingIterable(T value, long amount) {
+            this.value = value;
+            this.amount = amount;
+        }
+
+        
+        public final Option<Long> size() {
+            return amount != null ? wrapSome(amount) : Option.<Long>None();
+        }
+        
+        public final Option<Pair<Iterable<T>,Iterable<T>>> split() {
+            return amount != null ? splitAt(amount / 2) : Option.<Pair<Iterable<T>,Iterable<T>>>None();
+        }
+        
+        public final Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n) {
+            if (amount == null || n <= 0 || n >= amount) {
+                return None();
+            }
+            return parts((Iterable<T>)new RepeatingIterable<T>(value, n), new RepeatingIterable<T>(value, amount - n));
         }
 
         
         public final Iterator<T> iterator() {
-            if (force && iterable instanceof ForceableIterable) {
-                ((ForceableIterable)iterable).completeIterationNeeded();
+            return new Iterator<T>() {
+                private int current = 0;
+                
+                public final boolean hasNext() {
+                    return amount == null || current < amount;
+                }
+
+                
+                public final T next() {
+                    if (amount != null && current == amount) {
+                        throw new NoSuchElementException();
+                    }
+                    current++;
+                    return value;
+                }
+
+                
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final <T> Option<List<T>> randomAccess(Iterable<T> xs) {
+        return xs instanceof List && xs instanceof RandomAccess ? Some((List<T>)xs) : Option.<List<T>>None();
+    }
+    
+    /**
+     * Lazy and unmodifiable view of a random access list, so that results over lists
+     * still have constant time size and indexed access.
+     */
+    static abstract class ListView<T> extends AbstractList<T> implements RandomAccess {
+        protected final void checkIndex(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
             }
+        }
+    }
+    
+    /**
+     * Immutable list over a primitive array, which it owns.
+     */
+    static abstract class PrimitiveList<T> extends ListView<T> {
+    }
+    
+    /**
+     * Boxes on each <i>get</i>, for the primitive types without a list of their own.
+     */
+    static final class BoxingArrayList<T> extends PrimitiveList<T> {
+        private final Object array;
+
+        public BoxingArrayList(Object array) {
+            this.array = array;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public final T get(int index) {
+            return (T)Array.get(array, index);
+        }
+
+        @Override
+        public final int size() {
+            return Array.getLength(array);
+        }
+    }
+    
+    static final class TransformingList<S,T> extends ListView<T> {
+        private final List<S> source;
+        private final Apply<? super S, ? extends T> transformer;
+
+        public TransformingList(List<S> source, Apply<? super S, ? extends T> transformer) {
+            this.source = source;
+            this.transformer = transformer;
+        }
+        
+        /**
+         * Over another TransformingList, composes the transformers so that there's a single view over the original source.
+         */
+        @SuppressWarnings("unchecked")
+        static final <S,T> TransformingList<?,T> of(List<S> source, Apply<? super S, ? extends T> transformer) {
+            if (source instanceof TransformingList) {
+                TransformingList<Object,S> previous = (TransformingList<Object,S>)source;
+                return new TransformingList<Object,T>(previous.source, Composition.<Object,T>of(previous.transformer, transformer));
+            }
+            return new TransformingList<S,T>(source, transformer);
+        }
+        
+        @Override
+        public final T get(int index) {
+            checkIndex(index);
+            return transformer.apply(source.get(index));
+        }
+        
+        @Override
+        public final Iterator<T> iterator() {
+            final Iterator<S> it = source.iterator();
             return new Iterator<T>() {
-                private boolean hasNext;
-                private T next;
-                private final Iterator<T> source = iterable.iterator();
-                {
-                    readNext();
+                public final boolean hasNext() {
+                    return it.hasNext();
                 }
+                
+                public final T next() {
+                    return transformer.apply(it.next());
+                }
+                
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public final int size() {
+            return source.size();
+        }
+    }
+    
+    static final class TakingList<T> extends ListView<T> {
+        private final List<T> source;
+        private final long amount;
+
+        public TakingList(List<T> source, long amount) {
+            this.source = source;
+            this.amount = Math.max(amount, 0);
+        }
+        
+        @Override
+        public final T get(int index) {
+            checkIndex(index);
+            return source.get(index);
+        }
+
+        @Override
+        public final int size() {
+            return (int)Math.min(amount, source.size());
+        }
+    }
+    
+    static final class DroppingList<T> extends ListView<T> {
+        private final List<T> source;
+        private final long amount;
+
+        public DroppingList(List<T> source, long amount) {
+            this.source = source;
+            this.amount = Math.max(amount, 0);
+        }
+        
+        @Override
+        public final T get(int index) {
+            checkIndex(index);
+            return source.get((int)(index + amount));
+        }
+
+        @Override
+        public final int size() {
+            return (int)Math.max(source.size() - amount, 0);
+        }
+    }
+    
+    static final class ReversingList<T> extends ListView<T> {
+        private final List<T> source;
+
+        public ReversingList(List<T> source) {
+            this.source = source;
+        }
+        
+        @Override
+        public final T get(int index) {
+            checkIndex(index);
+            return source.get(source.size() - 1 - index);
+        }
+
+        @Override
+        public final int size() {
+            return source.size();
+        }
+    }
+    
+    static final class ZippingList<A,B> extends ListView<Tuple2<A,B>> {
+        private final List<A> a;
+        private final List<B> b;
+
+        public ZippingList(List<A> a, List<B> b) {
+            this.a = a;
+            this.b = b;
+        }
+        
+        @Override
+        public final Tuple2<A,B> get(int index) {
+            checkIndex(index);
+            return Tuple.of(a.get(index), b.get(index));
+        }
+
+        @Override
+        public final int size() {
+            return Math.min(a.size(), b.size());
+        }
+    }
+    
+    static final class IndexedList<T> extends ListView<Tuple2<Integer,T>> {
+        private final List<T> source;
+
+        public IndexedList(List<T> source) {
+            this.source = source;
+        }
+        
+        @Override
+        public final Tuple2<Integer,T> get(int index) {
+            checkIndex(index);
+            return Tuple.of(index, source.get(index));
+        }
 
+        @Override
+        public final int size() {
+            return source.size();
+        }
+    }
+    
+    static final class TransposingIterable<T> extends MyIterable<Iterable<T>> implements ForceableIterable {
+        private final Iterable<? extends Iterable<T>> elements;
+        private boolean force = false;
+
+        public TransposingIterable(Iterable<? extends Iterable<T>> elements) {
+            this.elements = elements;
+        }
+        
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Iterator<Iterable<T>> iterator() {
+            return new Iterator<Iterable<T>>() {
+                @SuppressWarnings("unchecked")
+                private final List<Iterator<T>> iterators = newList(map((Transformer<Iterable<T>,Iterator<T>>)(Object)(force ? toIteratorForced : toIterator), elements));
+                
                 
                 public final boolean hasNext() {
-                    return hasNext;
+                    return !iterators.isEmpty() && forall(hasNext, iterators);
                 }
 
-                private final void readNext() {
-                    hasNext = false;
-                    while (!hasNext && source.hasNext()) {
-                        T n = source.next();
-                        if (filter.apply(n)) {
-                            next = n;
-                            hasNext = true;
+                @SuppressWarnings("unchecked")
+                
+                public final Iterable<T> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return newList(map((Transformer<Iterator<T>, T>)(Object)next, iterators));
+                }
+
+                
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        
+        public final Option<Long> size() {
+            return None();
+        }
+    }
+
+    static final class ZippingIterable<A,B> extends MyIterable<Tuple2<A, B>> implements ForceableIterable, SplittableIterable<Tuple2<A, B>> {
+        private final Iterable<A> elements1;
+        private final Iterable<B> elements2;
+        private boolean force = false;
+
+        public ZippingIterable(Iterable<A> elements1, Iterable<B> elements2) {
+            this.elements1 = elements1;
+            this.elements2 = elements2;
+        }
+
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Iterator<Tuple2<A, B>> iterator() {
+            if (force) {
+                if (elements1 instanceof ForceableIterable) {
+                    ((ForceableIterable)elements1).completeIterationNeeded();
+                }
+                if (elements2 instanceof ForceableIterable) {
+                    ((ForceableIterable)elements2).completeIterationNeeded();
+                }
+            }
+            return new Iterator<Tuple2<A, B>>() {
+                private final Iterator<A> it1 = elements1.iterator();
+                private final Iterator<B> it2 = elements2.iterator();
+                
+                
+                public final boolean hasNext() {
+                    return it1.hasNext() && it2.hasNext();
+                }
+
+                
+                public final Tuple2<A, B> next() {
+                    return Tuple.of(it1.next(), it2.next());
+                }
+
+                
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        
+        public final Option<Long> size() {
+            for (long a: resolveSize.apply(elements1)) {
+                for (long b: resolveSize.apply(elements2)) {
+                    return wrapSome(Math.min(a,b));
+                }
+            }
+            return None();
+        }
+        
+        public final Option<Pair<Iterable<Tuple2<A, B>>,Iterable<Tuple2<A, B>>>> split() {
+            for (long size: size()) {
+                return splitAt(size / 2);
+            }
+            return None();
+        }
+        
+        public final Option<Pair<Iterable<Tuple2<A, B>>,Iterable<Tuple2<A, B>>>> splitAt(long n) {
+            // both sides have to be split at exactly the same position for the pairs to stay the same
+            for (Pair<Iterable<A>,Iterable<A>> a: Iterables.splitAt(n, elements1)) {
+                for (Pair<Iterable<B>,Iterable<B>> b: Iterables.splitAt(n, elements2)) {
+                    return parts((Iterable<Tuple2<A, B>>)new ZippingIterable<A,B>(a.left, b.left), new ZippingIterable<A,B>(a.right, b.right));
+                }
+            }
+            return None();
+        }
+    }
+
+    /**
+     * Concatenation of parts as a balanced binary tree (a conc-tree), so that repeated <i>concat</i> and
+     * <i>cons</i> stay shallow and indexing into a concatenation of lists takes a logarithmic number of steps.
+     * 
+     * Sizes are resolved once, when first needed. Iteration always sees the current contents of the parts.
+     */
+    static final class ConcatenatingIterable<T> extends MyIterable<T> implements ForceableIterable, SplittableIterable<T> {
+        final Iterable<? extends T> left;
+        final Iterable<? extends T> right;
+        private final int level;
+        final boolean fixedSize;
+        private Option<Long> size;
+        private boolean force = false;
+
+        private ConcatenatingIterable(Iterable<? extends T> left, Iterable<? extends T> right) {
+            this.left = left;
+            this.right = right;
+            this.level = 1 + Math.max(level(left), level(right));
+            this.fixedSize = fixedSize(left) && fixedSize(right);
+        }
+        
+        /**
+         * Whether the size of <i>xs</i> can never change, so that it can be cached.
+         */
+        private static final boolean fixedSize(Iterable<?> xs) {
+            return xs instanceof ConcatenatingIterable ? ((ConcatenatingIterable<?>)xs).fixedSize :
+                   xs instanceof PrimitiveList ||
+                   xs instanceof PersistentVector ||
+                   xs instanceof PersistentSet ||
+                   xs instanceof RangeIterable ||
+                   xs instanceof IntRangeIterable ||
+                   xs instanceof LongRangeIterable ||
+                   xs instanceof IntArrayIterable ||
+                   xs instanceof LongArrayIterable ||
+                   xs instanceof DoubleArrayIterable;
+        }
+        
+        private static final int level(Iterable<?> xs) {
+            return xs instanceof ConcatenatingIterable ? ((ConcatenatingIterable<?>)xs).level : 0;
+        }
+        
+        @SuppressWarnings("unchecked")
+        static final <T> Iterable<T> of(Iterable<? extends Iterable<? extends T>> parts) {
+            List<Iterable<? extends T>> ps = newList();
+            for (Iterable<? extends T> p: parts) {
+                ps.add(p);
+            }
+            return ps.isEmpty() ? java.util.Collections.<T>emptyList() : (Iterable<T>)balanced(ps, 0, ps.size());
+        }
+        
+        private static final <T> Iterable<? extends T> balanced(List<Iterable<? extends T>> parts, int from, int to) {
+            if (to - from == 1) {
+                return parts.get(from);
+            }
+            int mid = (from + to) >>> 1;
+            return new ConcatenatingIterable<T>(balanced(parts, from, mid), balanced(parts, mid, to));
+        }
+        
+        @SuppressWarnings("unchecked")
+        static final <T> Iterable<T> concat(Iterable<? extends T> xs, Iterable<? extends T> ys) {
+            return (Iterable<T>)join(xs, ys);
+        }
+        
+        /**
+         * Joins two balanced trees into a balanced tree, in time proportional to the difference of their heights.
+         */
+        private static final <T> Iterable<? extends T> join(Iterable<? extends T> xs, Iterable<? extends T> ys) {
+            int diff = level(ys) - level(xs);
+            if (diff >= -1 && diff <= 1) {
+                return new ConcatenatingIterable<T>(xs, ys);
+            }
+            if (diff < -1) {
+                ConcatenatingIterable<? extends T> x = (ConcatenatingIterable<? extends T>)xs;
+                if (level(x.left) >= level(x.right)) {
+                    return new ConcatenatingIterable<T>(x.left, join(x.right, ys));
+                }
+                ConcatenatingIterable<? extends T> xr = (ConcatenatingIterable<? extends T>)x.right;
+                Iterable<? extends T> nrr = join(xr.right, ys);
+                if (level(nrr) == x.level - 3) {
+                    return new ConcatenatingIterable<T>(x.left, new ConcatenatingIterable<T>(xr.left, nrr));
+                }
+                return new ConcatenatingIterable<T>(new ConcatenatingIterable<T>(x.left, xr.left), nrr);
+            }
+            ConcatenatingIterable<? extends T> y = (ConcatenatingIterable<? extends T>)ys;
+            if (level(y.right) >= level(y.left)) {
+                return new ConcatenatingIterable<T>(join(xs, y.left), y.right);
+            }
+            ConcatenatingIterable<? extends T> yl = (ConcatenatingIterable<? extends T>)y.left;
+            Iterable<? extends T> nll = join(xs, yl.left);
+            if (level(nll) == y.level - 3) {
+                return new ConcatenatingIterable<T>(new ConcatenatingIterable<T>(nll, yl.right), y.right);
+            }
+            return new ConcatenatingIterable<T>(nll, new ConcatenatingIterable<T>(yl.right, y.right));
+        }
+        
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+
+        public final Option<Long> size() {
+            Option<Long> ret = size;
+            if (ret == null) {
+                Option<Long> l = resolveSize.apply(left);
+                Option<Long> r = l.isDefined() ? resolveSize.apply(right) : Option.<Long>None();
+                ret = r.isDefined() ? wrapSome(l.get() + r.get()) : Option.<Long>None();
+                if (fixedSize) {
+                    size = ret;
+                }
+            }
+            return ret;
+        }
+        
+        @SuppressWarnings("unchecked")
+        public final Option<Pair<Iterable<T>,Iterable<T>>> split() {
+            return parts((Iterable<T>)left, (Iterable<T>)right);
+        }
+        
+        @SuppressWarnings("unchecked")
+        public final Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n) {
+            Option<Long> leftSize = resolveSize.apply(left);
+            if (!leftSize.isDefined() || n <= 0) {
+                return None();
+            }
+            if (n == leftSize.get()) {
+                return parts((Iterable<T>)left, (Iterable<T>)right);
+            }
+            if (n < leftSize.get()) {
+                for (Pair<Iterable<T>,Iterable<T>> p: Iterables.splitAt(n, (Iterable<T>)left)) {
+                    return parts(p.left, ConcatenatingIterable.<T>concat(p.right, right));
+                }
+                return None();
+            }
+            for (Pair<Iterable<T>,Iterable<T>> p: Iterables.splitAt(n - leftSize.get(), (Iterable<T>)right)) {
+                return parts(ConcatenatingIterable.<T>concat(left, p.left), p.right);
+            }
+            return None();
+        }
+        
+        public final Iterator<T> iterator() {
+            return new Iterator<T>() {
+                // parts not yet started, the next one last
+                private final List<Iterable<? extends T>> pending = newList();
+                private Iterator<? extends T> current = java.util.Collections.<T>emptyList().iterator();
+                
+                {
+                    pending.add(ConcatenatingIterable.this);
+                }
+                
+                public final boolean hasNext() {
+                    while (!current.hasNext() && !pending.isEmpty()) {
+                        Iterable<? extends T> next = pending.remove(pending.size() - 1);
+                        if (force && next instanceof ForceableIterable) {
+                            ((ForceableIterable)next).completeIterationNeeded();
+                        }
+                        if (next instanceof ConcatenatingIterable) {
+                            pending.add(((ConcatenatingIterable<? extends T>)next).right);
+                            pending.add(((ConcatenatingIterable<? extends T>)next).left);
+                        } else {
+                            current = next.iterator();
                         }
                     }
+                    return current.hasNext();
+                }
+
+                public final T next() {
+                    hasNext();
+                    return current.next();
+                }
+
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+    
+    /**
+     * Element at <i>index</i>, descending through concatenations by their sizes.
+     */
+    @SuppressWarnings("unchecked")
+    static final <T> Option<T> nth(long index, Iterable<T> xs) {
+        if (index < 0) {
+            return None();
+        }
+        while (xs instanceof ConcatenatingIterable) {
+            ConcatenatingIterable<T> c = (ConcatenatingIterable<T>)xs;
+            Option<Long> leftSize = resolveSize.apply(c.left);
+            if (!leftSize.isDefined()) {
+                break;
+            }
+            if (index < leftSize.get()) {
+                xs = (Iterable<T>)c.left;
+            } else {
+                index -= leftSize.get();
+                xs = (Iterable<T>)c.right;
+            }
+        }
+        if (xs instanceof List && xs instanceof RandomAccess) {
+            List<T> list = (List<T>)xs;
+            return index < list.size() ? Some(list.get((int)index)) : Option.<T>None();
+        }
+        Iterator<T> it = xs.iterator();
+        for (long i = 0; i < index && it.hasNext(); ++i) {
+            it.next();
+        }
+        return it.hasNext() ? Some(it.next()) : Option.<T>None();
+    }
+    
+    static final class FlatteningIterable<T> extends MyIterable<T> implements ForceableIterable {
+        private final Iterable<? extends Iterable<? extends T>> elements;
+        private boolean force = false;
+
+        public FlatteningIterable(Iterable<? extends Iterable<? extends T>> elements) {
+            this.elements = elements;
+        }
+        
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Option<Long> size() {
+            return None();
+        }
+        
+        public final Iterator<T> iterator() {
+            return new Iterator<T>() {
+                @SuppressWarnings("unchecked")
+                private final Iterator<Iterator<? extends T>> it = Functional.map((Transformer<Iterable<? extends T>,Iterator<? extends T>>)(Object)(force ? toIteratorForced : toIterator), elements).iterator();
+
+                private Iterator<? extends T> lastUsed = it.hasNext() ? it.next() : java.util.Collections.<T>emptyList().iterator();
+
+                
+                public final boolean hasNext() {
+                    while (!lastUsed.hasNext() && it.hasNext()) {
+                        lastUsed = it.next();
+                    }
+                    return lastUsed.hasNext();
                 }
 
                 
                 public final T next() {
-                    if (!hasNext) {
-                        throw new NoSuchElementException();
-                    }
-                    T ret = (T) next;
-                    readNext();
-                    return ret;
+                    hasNext();
+                    return lastUsed.next();
                 }
 
                 
@@ -442,47 +1269,305 @@ public abstract class Iterables {
         }
     }
 
-    static final class TransformingIterable<S,T> extends MyIterable<T> implements ForceableIterable {
-        private final Iterable<S> iterable;
-        private final Apply<? super S, ? extends T> transformer;
+    /**
+     * Base for the element-wise wrappers (map, filter, take, takeWhile, dropWhile).
+     * 
+     * A wrapper created on top of another one doesn't wrap it but takes over its source
+     * and its stages and adds its own stage, so a chain of these is iterated with a single
+     * iterator running all the stages in one loop per element.
+     */
+    static abstract class PipelineIterable<T> extends MyIterable<T> implements ForceableIterable, SplittableIterable<T> {
+        static final int MAP = 0;
+        static final int FILTER = 1;
+        static final int TAKE = 2;
+        static final int TAKE_WHILE = 3;
+        static final int DROP_WHILE = 4;
+        
+        static final class Stage {
+            final int kind;
+            final Apply<Object,Object> f;
+            final long amount;
+            
+            @SuppressWarnings("unchecked")
+            Stage(int kind, Apply<?,?> f, long amount) {
+                this.kind = kind;
+                this.f = (Apply<Object,Object>)f;
+                this.amount = amount;
+            }
+        }
+        
+        private final Iterable<?> source;
+        private final Stage[] stages;
         private boolean force = false;
-
-        public TransformingIterable(Iterable<S> iterable, Apply<? super S, ? extends T> transformer) {
-            this.iterable = iterable;
-            this.transformer = transformer;
+        
+        PipelineIterable(Iterable<?> previous, Stage stage) {
+            if (previous instanceof PipelineIterable) {
+                PipelineIterable<?> p = (PipelineIterable<?>)previous;
+                this.source = p.source;
+                this.stages = Arrays.copyOf(p.stages, p.stages.length + 1);
+            } else if (previous instanceof TransformingList) {
+                // no index access needed anymore, so run the mapping as a stage too
+                TransformingList<?,?> p = (TransformingList<?,?>)previous;
+                this.source = p.source;
+                this.stages = new Stage[] {new Stage(MAP, p.transformer, 0), null};
+            } else {
+                this.source = previous;
+                this.stages = new Stage[1];
+            }
+            this.stages[stages.length - 1] = stage;
         }
-
+        
+        private PipelineIterable(Iterable<?> source, Stage[] stages) {
+            this.source = source;
+            this.stages = stages;
+        }
+        
+        /**
+         * @return whether each element is handled independently of the others,
+         *         so that the source can be split without changing the result.
+         */
+        private final boolean elementwise(boolean allowFilters) {
+            for (Stage stage: stages) {
+                if (stage.kind != MAP && !(allowFilters && stage.kind == FILTER)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @SuppressWarnings("unchecked")
+        public final Option<Pair<Iterable<T>,Iterable<T>>> split() {
+            if (elementwise(true)) {
+                for (Pair<Iterable<Object>,Iterable<Object>> p: Iterables.split((Iterable<Object>)source)) {
+                    return parts((Iterable<T>)new PipelinePart<T>(p.left, stages), new PipelinePart<T>(p.right, stages));
+                }
+            }
+            return None();
+        }
+        
+        @SuppressWarnings("unchecked")
+        public final Option<Pair<Iterable<T>,Iterable<T>>> splitAt(long n) {
+            // a filter would change the positions
+            if (elementwise(false)) {
+                for (Pair<Iterable<Object>,Iterable<Object>> p: Iterables.splitAt(n, (Iterable<Object>)source)) {
+                    return parts((Iterable<T>)new PipelinePart<T>(p.left, stages), new PipelinePart<T>(p.right, stages));
+                }
+            }
+            return None();
+        }
+        
         public final void completeIterationNeeded() {
             this.force = true;
         }
         
-        public final Option<Long> size() {
-            return resolveSize.apply(iterable);
+        public final Iterator<T> iterator() {
+            if (force && source instanceof ForceableIterable) {
+                ((ForceableIterable)source).completeIterationNeeded();
+            }
+            return new PipelineIterator<T>(source, sourceLimit(), stages);
         }
-
         
-        public final Iterator<T> iterator() {
-            if (force && iterable instanceof ForceableIterable) {
-                ((ForceableIterable)iterable).completeIterationNeeded();
+        /**
+         * @return how many elements at most are needed from the source, or -1 if not known.
+         */
+        private final long sourceLimit() {
+            for (Stage stage: stages) {
+                if (stage.kind == TAKE) {
+                    return stage.amount;
+                }
+                if (stage.kind != MAP) {
+                    break;
+                }
             }
-            return new Iterator<T>() {
-                private final Iterator<S> source = iterable.iterator();
-
-                
-                public final boolean hasNext() {
-                    return source.hasNext();
+            return -1;
+        }
+    }
+    
+    private static final class PipelineIterator<T> implements Iterator<T> {
+        private final Iterator<?> source;
+        private final PipelineIterable.Stage[] stages;
+        // per-iterator state of stateful stages: elements left to take, or non-zero while still dropping
+        private final long[] state;
+        // stages from here on are maps and takes, whose maps are left for next() so that hasNext() doesn't apply them
+        private final int deferred;
+        private boolean done;
+        private boolean ready;
+        private Object next;
+        
+        PipelineIterator(Iterable<?> source, long sourceLimit, PipelineIterable.Stage[] stages) {
+            this.stages = stages;
+            this.state = new long[stages.length];
+            int deferred = stages.length;
+            while (deferred > 0 && (stages[deferred - 1].kind == PipelineIterable.MAP || stages[deferred - 1].kind == PipelineIterable.TAKE)) {
+                deferred--;
+            }
+            this.deferred = deferred;
+            for (int i = 0; i < stages.length; ++i) {
+                switch (stages[i].kind) {
+                    case PipelineIterable.TAKE:
+                        state[i] = stages[i].amount;
+                        done |= state[i] == 0;
+                        break;
+                    case PipelineIterable.DROP_WHILE:
+                        state[i] = 1;
+                        break;
                 }
-
-                
-                public final T next() {
-                    return transformer.apply(source.next());
+            }
+            if (done) {
+                this.source = java.util.Collections.emptyList().iterator();
+            } else if (sourceLimit >= 0 && source instanceof SortingIterable) {
+                this.source = ((SortingIterable<?>)source).iterator(sourceLimit);
+            } else {
+                this.source = source.iterator();
+            }
+        }
+        
+        private final void readNext() {
+            outer:
+            while (!done && source.hasNext()) {
+                Object x = source.next();
+                for (int i = 0; i < stages.length; ++i) {
+                    PipelineIterable.Stage stage = stages[i];
+                    switch (stage.kind) {
+                        case PipelineIterable.MAP:
+                            if (i < deferred) {
+                                x = stage.f.apply(x);
+                            }
+                            break;
+                        case PipelineIterable.FILTER:
+                            if (!(Boolean)stage.f.apply(x)) {
+                                continue outer;
+                            }
+                            break;
+                        case PipelineIterable.TAKE:
+                            // no later element can pass this stage, so don't read any more from the source
+                            if (--state[i] == 0) {
+                                stop();
+                            }
+                            break;
+                        case PipelineIterable.TAKE_WHILE:
+                            if (!(Boolean)stage.f.apply(x)) {
+                                stop();
+                                continue outer;
+                            }
+                            break;
+                        case PipelineIterable.DROP_WHILE:
+                            if (state[i] != 0) {
+                                if ((Boolean)stage.f.apply(x)) {
+                                    continue outer;
+                                }
+                                state[i] = 0;
+                            }
+                            break;
+                    }
+                }
+                next = x;
+                ready = true;
+                return;
+            }
+        }
+        
+        /**
+         * Releases the source early, e.g. the temporary files of an external sort.
+         */
+        private final void stop() {
+            done = true;
+            if (source instanceof Closeable) {
+                try {
+                    ((Closeable)source).close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
+            }
+        }
+        
+        public final boolean hasNext() {
+            if (!ready) {
+                readNext();
+            }
+            return ready;
+        }
 
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+        @SuppressWarnings("unchecked")
+        public final T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object ret = next;
+            next = null;
+            ready = false;
+            for (int i = deferred; i < stages.length; ++i) {
+                if (stages[i].kind == PipelineIterable.MAP) {
+                    ret = stages[i].f.apply(ret);
                 }
-            };
+            }
+            return (T) ret;
+        }
+
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class PipelinePart<T> extends PipelineIterable<T> {
+        private final Iterable<?> source;
+        private final boolean sizePreserving;
+        
+        PipelinePart(Iterable<?> source, Stage[] stages) {
+            super(source, stages);
+            this.source = source;
+            boolean sizePreserving = true;
+            for (Stage stage: stages) {
+                sizePreserving &= stage.kind == MAP;
+            }
+            this.sizePreserving = sizePreserving;
+        }
+        
+        public final Option<Long> size() {
+            return sizePreserving ? resolveSize.apply(source) : Option.<Long>None();
+        }
+    }
+    
+    static final class FilteringIterable<T> extends PipelineIterable<T> {
+        public FilteringIterable(Iterable<T> iterable, Apply<? super T, Boolean> filter) {
+            super(iterable, new Stage(FILTER, filter, 0));
+        }
+        
+        public final Option<Long> size() {
+            return None();
+        }
+    }
+
+    static final class TransformingIterable<S,T> extends PipelineIterable<T> {
+        private final Iterable<S> iterable;
+
+        public TransformingIterable(Iterable<S> iterable, Apply<? super S, ? extends T> transformer) {
+            super(iterable, new Stage(MAP, transformer, 0));
+            this.iterable = iterable;
+        }
+        
+        public final Option<Long> size() {
+            return resolveSize.apply(iterable);
+        }
+    }
+    
+    static final class TakingWhileIterable<T> extends PipelineIterable<T> {
+        public TakingWhileIterable(Iterable<T> iterable, Apply<? super T, Boolean> predicate) {
+            super(iterable, new Stage(TAKE_WHILE, predicate, 0));
+        }
+        
+        public final Option<Long> size() {
+            return None();
+        }
+    }
+    
+    static final class DroppingWhileIterable<T> extends PipelineIterable<T> {
+        public DroppingWhileIterable(Iterable<T> iterable, Apply<? super T, Boolean> predicate) {
+            super(iterable, new Stage(DROP_WHILE, predicate, 0));
+        }
+        
+        public final Option<Long> size() {
+            return None();
         }
     }
     
@@ -594,6 +1679,99 @@ public abstract class Iterables {
         }
     }
     
+    /**
+     * Caches elements as the source is first iterated, so that later and concurrent iterators replay
+     * the cached prefix instead of evaluating the source again. The source is released once fully iterated.
+     */
+    static final class MemoizingIterable<T> extends MyIterable<T> implements ForceableIterable {
+        private static final Object END = new Object();
+        private static final Object UNFETCHED = new Object();
+        
+        // the evaluated prefix is published through the volatile count, so reading it needs no lock
+        private volatile Object[] memo = new Object[16];
+        private volatile int count = 0;
+        private Iterable<T> source;
+        private Iterator<T> it;
+        private boolean force = false;
+        
+        public MemoizingIterable(Iterable<T> source) {
+            this.source = source;
+        }
+        
+        public final synchronized void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final synchronized Option<Long> size() {
+            return source == null ? wrapSome(count) : resolveSize.apply(source);
+        }
+        
+        /**
+         * @return element at <i>index</i>, evaluating the source up to it if needed, or <i>END</i>.
+         */
+        private final Object get(int index) {
+            // count is read before memo, so memo is at least as new as count
+            return index < count ? memo[index] : fetch(index);
+        }
+        
+        private final synchronized Object fetch(int index) {
+            while (index >= count) {
+                if (source == null) {
+                    return END;
+                }
+                if (it == null) {
+                    if (force && source instanceof ForceableIterable) {
+                        ((ForceableIterable)source).completeIterationNeeded();
+                    }
+                    it = source.iterator();
+                }
+                if (!it.hasNext()) {
+                    source = null;
+                    it = null;
+                    return END;
+                }
+                T next = it.next();
+                Object[] m = memo;
+                if (count == m.length) {
+                    m = Arrays.copyOf(m, grownCapacity(m.length));
+                    memo = m;
+                }
+                m[count] = next;
+                count++;
+            }
+            return memo[index];
+        }
+        
+        public final Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int index = 0;
+                private Object next = UNFETCHED;
+                
+                public final boolean hasNext() {
+                    if (next == UNFETCHED) {
+                        next = get(index);
+                    }
+                    return next != END;
+                }
+
+                @SuppressWarnings("unchecked")
+                public final T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    T ret = (T)next;
+                    next = UNFETCHED;
+                    index++;
+                    return ret;
+                }
+
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+    
     static final class MemoizingCharSequenceIterable extends MyIterable<Character> implements CharSequence, Iterable<Character> {
         private final StringBuilder memo = new StringBuilder();
         private final Iterable<Character> iterable;
@@ -704,6 +1882,134 @@ public abstract class Iterables {
         }
     }
     
+    /**
+     * Filters duplicates with state created anew for each iterator, so iterating again or concurrently works.
+     */
+    static abstract class DistinctIterable<T> extends MyIterable<T> implements ForceableIterable {
+        private final Iterable<T> iterable;
+        private boolean force = false;
+
+        public DistinctIterable(Iterable<T> iterable) {
+            this.iterable = iterable;
+        }
+        
+        /**
+         * @return a predicate accepting each element the first time it is seen.
+         */
+        protected abstract Apply<T,Boolean> firstOccurrences();
+
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Option<Long> size() {
+            Option<Long> size = resolveSize.apply(iterable);
+            return size.isDefined() && size.get() <= 1 ? size : Option.<Long>None();
+        }
+        
+        public final Iterator<T> iterator() {
+            FilteringIterable<T> ret = new FilteringIterable<T>(iterable, firstOccurrences());
+            if (force) {
+                ret.completeIterationNeeded();
+            }
+            return ret.iterator();
+        }
+    }
+    
+    static final class HashDistinctIterable<T> extends DistinctIterable<T> {
+        public HashDistinctIterable(Iterable<T> iterable) {
+            super(iterable);
+        }
+
+        @Override
+        protected final Apply<T,Boolean> firstOccurrences() {
+            return new Predicate<T>() {
+                private final Set<T> visited = newSet();
+                @Override
+                public final boolean accept(T candidate) {
+                    return visited.add(candidate);
+                }
+            };
+        }
+    }
+    
+    /**
+     * Only compares each element to the previous one.
+     */
+    static final class SortedDistinctIterable<T> extends DistinctIterable<T> {
+        public SortedDistinctIterable(Iterable<T> iterable) {
+            super(iterable);
+        }
+
+        @Override
+        protected final Apply<T,Boolean> firstOccurrences() {
+            return new Predicate<T>() {
+                private boolean first = true;
+                private T previous;
+                @Override
+                public final boolean accept(T candidate) {
+                    boolean ret = first || !(previous == null ? candidate == null : previous.equals(candidate));
+                    first = false;
+                    previous = candidate;
+                    return ret;
+                }
+            };
+        }
+    }
+    
+    /**
+     * Keeps only the primitive fingerprints of seen elements.
+     */
+    static final class FingerprintDistinctIterable<T> extends DistinctIterable<T> {
+        private final Apply<? super T, Long> fingerprint;
+
+        public FingerprintDistinctIterable(Iterable<T> iterable, Apply<? super T, Long> fingerprint) {
+            super(iterable);
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        protected final Apply<T,Boolean> firstOccurrences() {
+            return new Predicate<T>() {
+                private final LongSet visited = new LongSet();
+                @Override
+                public final boolean accept(T candidate) {
+                    return visited.add(fingerprint.apply(candidate));
+                }
+            };
+        }
+    }
+    
+    /**
+     * Keeps a Bloom filter of fingerprints, so may drop some elements seen for the first time.
+     */
+    static final class ApproximateDistinctIterable<T> extends DistinctIterable<T> {
+        private final Apply<? super T, Long> fingerprint;
+        private final long expectedSize;
+        private final double falsePositiveProbability;
+
+        public ApproximateDistinctIterable(Iterable<T> iterable, Apply<? super T, Long> fingerprint, long expectedSize, double falsePositiveProbability) {
+            super(iterable);
+            if (expectedSize < 1 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+                throw new IllegalArgumentException();
+            }
+            this.fingerprint = fingerprint;
+            this.expectedSize = expectedSize;
+            this.falsePositiveProbability = falsePositiveProbability;
+        }
+
+        @Override
+        protected final Apply<T,Boolean> firstOccurrences() {
+            return new Predicate<T>() {
+                private final BloomFilter visited = new BloomFilter(expectedSize, falsePositiveProbability);
+                @Override
+                public final boolean accept(T candidate) {
+                    return visited.add(fingerprint.apply(candidate));
+                }
+            };
+        }
+    }
+    
     static final class SortingIterable<T> extends MyIterable<T> implements ForceableIterable {
         private Iterable<T> iterable;
         private final Comparator<? super T> comparator;
@@ -714,8 +2020,98 @@ public abstract class Iterables {
             this.comparator = comparator;
         }
         
-        public final void completeIterationNeeded() {
-            this.force = true;
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        final Iterable<T> unsorted() {
+            return iterable;
+        }
+        
+        /**
+         * @return iterator over the first <i>limit</i> elements, keeping at most <i>limit</i> elements in memory.
+         */
+        @SuppressWarnings("unchecked")
+        final Iterator<T> iterator(long limit) {
+            Option<Long> size = resolveSize.apply(iterable);
+            if (limit >= Integer.MAX_VALUE || size.isDefined() && size.get() <= limit) {
+                return iterator();
+            }
+            if (force && iterable instanceof ForceableIterable) {
+                ((ForceableIterable)iterable).completeIterationNeeded();
+            }
+            
+            // max-heap of the smallest elements seen so far, so that its root is the first one to drop.
+            // Ties are ordered by arrival to keep the result stable.
+            int k = (int)Math.max(limit, 0);
+            Object[] heap = new Object[(int)Math.min(k, 16)];
+            long[] arrivals = new long[heap.length];
+            int heapSize = 0;
+            long arrival = 0;
+            for (T t: iterable) {
+                if (k == 0) {
+                    break;
+                }
+                if (heapSize < k) {
+                    if (heapSize == heap.length) {
+                        int newLength = (int)Math.min(k, heap.length * 2l);
+                        heap = Arrays.copyOf(heap, newLength);
+                        arrivals = Arrays.copyOf(arrivals, newLength);
+                    }
+                    int i = heapSize++;
+                    while (i > 0) {
+                        int parent = (i - 1) >>> 1;
+                        if (!isAfter(t, arrival, heap[parent], arrivals[parent])) {
+                            break;
+                        }
+                        heap[i] = heap[parent];
+                        arrivals[i] = arrivals[parent];
+                        i = parent;
+                    }
+                    heap[i] = t;
+                    arrivals[i] = arrival;
+                } else if (comparator.compare(t, (T)heap[0]) < 0) {
+                    siftDown(heap, arrivals, heapSize, t, arrival);
+                }
+                arrival++;
+            }
+            
+            Object[] sorted = new Object[heapSize];
+            for (int n = heapSize; n > 0; --n) {
+                sorted[n - 1] = heap[0];
+                siftDown(heap, arrivals, n - 1, heap[n - 1], arrivals[n - 1]);
+            }
+            return (Iterator<T>)Arrays.asList(sorted).iterator();
+        }
+        
+        /**
+         * Replaces the root of the heap with <i>t</i>.
+         */
+        @SuppressWarnings("unchecked")
+        private final void siftDown(Object[] heap, long[] arrivals, int heapSize, Object t, long arrival) {
+            int i = 0;
+            int child;
+            while ((child = 2 * i + 1) < heapSize) {
+                if (child + 1 < heapSize && isAfter(heap[child + 1], arrivals[child + 1], heap[child], arrivals[child])) {
+                    child++;
+                }
+                if (!isAfter(heap[child], arrivals[child], t, arrival)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                arrivals[i] = arrivals[child];
+                i = child;
+            }
+            if (heapSize > 0) {
+                heap[i] = t;
+                arrivals[i] = arrival;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private final boolean isAfter(Object a, long arrivalA, Object b, long arrivalB) {
+            int c = comparator.compare((T)a, (T)b);
+            return c > 0 || c == 0 && arrivalA > arrivalB;
         }
         
         public final Iterator<T> iterator() {
@@ -747,30 +2143,17 @@ public abstract class Iterables {
                 return sorted.iterator();
             }
             
-            final PriorityQueue<T> queue = new PriorityQueue<T>((int)initialSize, comparator);
+            Object[] elements;
             if (iterable instanceof Collection) {
-                queue.addAll((Collection<T>)iterable);
+                elements = ((Collection<?>)iterable).toArray();
             } else {
+                List<T> copy = newListOfSize(initialSize);
                 for (T t: iterable) {
-                    queue.add(t);
+                    copy.add(t);
                 }
+                elements = copy.toArray();
             }
-            return new Iterator<T>() {
-                
-                public final boolean hasNext() {
-                    return !queue.isEmpty();
-                }
-
-                
-                public final T next() {
-                    return queue.remove();
-                }
-
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
-                }
-            };
+            return new IncrementalSortIterator<T>(elements, comparator);
         }
 
         
@@ -779,52 +2162,354 @@ public abstract class Iterables {
         }
     }
     
-    static final class TakingIterable<T> extends MyIterable<T> implements ForceableIterable {
-        private final Iterable<T> elements;
-        private final long amount;
-        private boolean force = false;
-
-        public TakingIterable(Iterable<T> elements, long amount) {
-            if (amount < 0) {
-                amount = 0;
-            }
+    /**
+     * Incremental quicksort: each call to <i>next</i> partitions only the part of the array
+     * the next element is in, so reading the first k elements takes O(n + k log k) time.
+     * Reading everything amounts to a quicksort.
+     * 
+     * Ties are ordered by the original position of the elements, so the result is the same as with a stable sort.
+     */
+    private static final class IncrementalSortIterator<T> implements Iterator<T> {
+        private static final int INSERTION_SORT_THRESHOLD = 16;
+        
+        private final Object[] elements;
+        private final int[] positions;
+        private final Comparator<? super T> comparator;
+        
+        // exclusive upper bounds of the still unsorted parts. All but the bottom one are pivots in their final position.
+        private int[] bounds = new int[32];
+        private int boundsSize = 0;
+        
+        private int next = 0;
+        // elements before this are in their final position
+        private int finalUntil = 0;
+        
+        IncrementalSortIterator(Object[] elements, Comparator<? super T> comparator) {
             this.elements = elements;
-            this.amount = amount;
+            this.comparator = comparator;
+            this.positions = new int[elements.length];
+            for (int i = 0; i < positions.length; ++i) {
+                positions[i] = i;
+            }
+            bounds[boundsSize++] = elements.length;
         }
         
-        public final void completeIterationNeeded() {
-            this.force = true;
+        public final boolean hasNext() {
+            return next < elements.length;
         }
         
-        public final Iterator<T> iterator() {
-            if (force && elements instanceof ForceableIterable) {
-                ((ForceableIterable)elements).completeIterationNeeded();
+        @SuppressWarnings("unchecked")
+        public final T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            return new Iterator<T>() {
-                private long left = amount;
-                private final Iterator<T> it = elements.iterator();
-
-                
-                public final boolean hasNext() {
-                    return left > 0 && it.hasNext();
+            if (next >= finalUntil) {
+                settleNext();
+            }
+            T ret = (T)elements[next];
+            elements[next] = null;
+            next++;
+            return ret;
+        }
+        
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        private final void settleNext() {
+            while (true) {
+                int hi = bounds[boundsSize - 1];
+                if (hi - next <= INSERTION_SORT_THRESHOLD) {
+                    insertionSort(next, hi);
+                    boundsSize--;
+                    // the bound itself is a pivot, unless it's the end
+                    finalUntil = Math.min(hi + 1, elements.length);
+                    return;
+                }
+                int p = partition(next, hi);
+                if (p == next) {
+                    finalUntil = next + 1;
+                    return;
+                }
+                if (boundsSize == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[boundsSize++] = p;
+            }
+        }
+        
+        /**
+         * Partitions <i>[lo,hi)</i> around a median-of-three pivot.
+         * 
+         * @return the final position of the pivot.
+         */
+        private final int partition(int lo, int hi) {
+            int mid = lo + (hi - lo) / 2;
+            if (less(mid, lo)) {
+                swap(mid, lo);
+            }
+            if (less(hi - 1, lo)) {
+                swap(hi - 1, lo);
+            }
+            if (less(hi - 1, mid)) {
+                swap(hi - 1, mid);
+            }
+            // elements[lo] and elements[hi-1] now act as sentinels for the scans below
+            int pivot = hi - 2;
+            swap(mid, pivot);
+            int i = lo;
+            int j = pivot;
+            while (true) {
+                while (less(++i, pivot)) {
+                    // scan
+                }
+                while (less(pivot, --j)) {
+                    // scan
                 }
+                if (i >= j) {
+                    break;
+                }
+                swap(i, j);
+            }
+            swap(i, pivot);
+            return i;
+        }
+        
+        private final void insertionSort(int lo, int hi) {
+            for (int i = lo + 1; i < hi; ++i) {
+                Object e = elements[i];
+                int position = positions[i];
+                int j = i - 1;
+                while (j >= lo && less(e, position, elements[j], positions[j])) {
+                    elements[j + 1] = elements[j];
+                    positions[j + 1] = positions[j];
+                    j--;
+                }
+                elements[j + 1] = e;
+                positions[j + 1] = position;
+            }
+        }
+        
+        private final boolean less(int i, int j) {
+            return less(elements[i], positions[i], elements[j], positions[j]);
+        }
+        
+        @SuppressWarnings("unchecked")
+        private final boolean less(Object a, int positionA, Object b, int positionB) {
+            int c = comparator.compare((T)a, (T)b);
+            return c < 0 || c == 0 && positionA < positionB;
+        }
+        
+        private final void swap(int i, int j) {
+            Object e = elements[i];
+            elements[i] = elements[j];
+            elements[j] = e;
+            int position = positions[i];
+            positions[i] = positions[j];
+            positions[j] = position;
+        }
+    }
+    
+    /**
+     * Sorts in runs of at most <i>maxInMemory</i> elements, each of which is spilled to a temporary file,
+     * and merges the runs lazily. Ties are kept in input order. Runs are merged in passes of at most
+     * MAX_FAN_IN, so that only as many files are open at a time. Run files are deleted once merged,
+     * or when the iterator is closed.
+     */
+    static final class ExternalSortingIterable<T> extends MyIterable<T> {
+        static final int MAX_FAN_IN = 64;
+        
+        private final Iterable<T> iterable;
+        private final Comparator<? super T> comparator;
+        private final int maxInMemory;
+        private final Serializer<T> serializer;
 
-                
-                public final T next() {
-                    if (left == 0) {
-                        throw new NoSuchElementException();
+        public ExternalSortingIterable(Iterable<T> iterable, Comparator<? super T> comparator, int maxInMemory, Serializer<T> serializer) {
+            if (maxInMemory < 1) {
+                throw new IllegalArgumentException("maxInMemory must be positive: " + maxInMemory);
+            }
+            this.iterable = iterable;
+            this.comparator = comparator;
+            this.maxInMemory = maxInMemory;
+            this.serializer = serializer;
+        }
+        
+        @Override
+        public Option<Long> size() {
+            return resolveSize.apply(iterable);
+        }
+
+        public Iterator<T> iterator() {
+            Iterator<T> it = iterable.iterator();
+            List<T> run = nextRun(it);
+            if (!it.hasNext()) {
+                // everything fits in memory
+                return run.iterator();
+            }
+            List<SpilledRun<T>> created = newList();
+            try {
+                List<SpilledRun<T>> runs = newList();
+                while (!run.isEmpty()) {
+                    runs.add(spill(run.iterator(), runs.size(), created));
+                    run = nextRun(it);
+                }
+                while (runs.size() > MAX_FAN_IN) {
+                    List<SpilledRun<T>> merged = newList();
+                    for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                        List<SpilledRun<T>> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+                        if (group.size() == 1) {
+                            merged.add(new SpilledRun<T>(group.get(0).file, group.get(0).remaining, merged.size()));
+                        } else {
+                            merged.add(spill(new MergingIterator<T>(group, comparator, serializer), merged.size(), created));
+                        }
                     }
-                    left--;
-                    return it.next();
+                    runs = merged;
+                }
+                return new MergingIterator<T>(runs, comparator, serializer);
+            } catch (IOException e) {
+                for (SpilledRun<T> r: created) {
+                    r.close();
+                }
+                throw new RuntimeException(e);
+            }
+        }
+        
+        private final List<T> nextRun(Iterator<T> it) {
+            List<T> run = newListOfSize(Math.min(maxInMemory, 1024));
+            while (run.size() < maxInMemory && it.hasNext()) {
+                run.add(it.next());
+            }
+            java.util.Collections.sort(run, comparator);
+            return run;
+        }
+        
+        private final SpilledRun<T> spill(Iterator<T> run, int index, List<SpilledRun<T>> created) throws IOException {
+            File file = File.createTempFile("functional-utils-sort", ".run");
+            SpilledRun<T> ret = new SpilledRun<T>(file, 0, index);
+            created.add(ret);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                while (run.hasNext()) {
+                    serializer.write(out, run.next());
+                    ret.remaining++;
+                }
+            } finally {
+                out.close();
+            }
+            return ret;
+        }
+    }
+    
+    private static final class SpilledRun<T> {
+        final File file;
+        final int index;
+        long remaining;
+        DataInputStream in;
+        T head;
+        
+        SpilledRun(File file, long size, int index) {
+            this.file = file;
+            this.remaining = size;
+            this.index = index;
+        }
+        
+        /**
+         * @return whether a new head was read.
+         */
+        final boolean advance(Serializer<T> serializer) throws IOException {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            }
+            head = serializer.read(in);
+            remaining--;
+            return true;
+        }
+        
+        final void close() {
+            head = null;
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // nothing more to read anyway
+            } finally {
+                in = null;
+                file.delete();
+            }
+        }
+    }
+    
+    /**
+     * Deletes the files of its runs as they are exhausted, or all remaining ones when closed.
+     */
+    private static final class MergingIterator<T> implements Iterator<T>, Closeable {
+        private final PriorityQueue<SpilledRun<T>> heads;
+        private final Serializer<T> serializer;
+        
+        MergingIterator(List<SpilledRun<T>> runs, final Comparator<? super T> comparator, Serializer<T> serializer) throws IOException {
+            // runs are in input order, so breaking ties by run keeps the merge stable
+            this.heads = new PriorityQueue<SpilledRun<T>>(runs.size(), new Comparator<SpilledRun<T>>() {
+                public int compare(SpilledRun<T> o1, SpilledRun<T> o2) {
+                    int c = comparator.compare(o1.head, o2.head);
+                    return c != 0 ? c : o1.index < o2.index ? -1 : 1;
+                }
+            });
+            this.serializer = serializer;
+            for (SpilledRun<T> run: runs) {
+                if (run.advance(serializer)) {
+                    heads.add(run);
                 }
+            }
+        }
+        
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
 
-                
-                public final void remove() {
-                    throw new UnsupportedOperationException();
+        public T next() {
+            SpilledRun<T> run = heads.poll();
+            if (run == null) {
+                throw new NoSuchElementException();
+            }
+            T ret = run.head;
+            try {
+                if (run.advance(serializer)) {
+                    heads.add(run);
                 }
-            };
+            } catch (IOException e) {
+                run.close();
+                close();
+                throw new RuntimeException(e);
+            }
+            return ret;
         }
 
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        public void close() {
+            for (SpilledRun<T> r: heads) {
+                r.close();
+            }
+            heads.clear();
+        }
+    }
+    
+    static final class TakingIterable<T> extends PipelineIterable<T> {
+        private final Iterable<T> elements;
+        private final long amount;
+
+        public TakingIterable(Iterable<T> elements, long amount) {
+            super(elements, new Stage(TAKE, null, Math.max(amount, 0)));
+            this.elements = elements;
+            this.amount = Math.max(amount, 0);
+        }
         
         public final Option<Long> size() {
             Option<Long> s = resolveSize.apply(elements);
@@ -877,6 +2562,229 @@ public abstract class Iterables {
         }
     }
     
+    /**
+     * Windows of <i>size</i> elements starting every <i>step</i> elements, holding only the current window in memory.
+     * The last window may be smaller. With <i>reuseWindow</i> the same list is returned on each step, so it must not
+     * be held on to.
+     */
+    static final class WindowingIterable<T> extends MyIterable<List<T>> implements ForceableIterable {
+        private final Iterable<T> elements;
+        private final int size;
+        private final long step;
+        private final boolean reuseWindow;
+        private boolean force = false;
+
+        public WindowingIterable(Iterable<T> elements, long size, long step, boolean reuseWindow) {
+            if (size <= 0 || step <= 0) {
+                throw new IllegalArgumentException("size and step must be positive");
+            }
+            this.elements = elements;
+            this.size = (int)Math.min(size, Integer.MAX_VALUE);
+            this.step = step;
+            this.reuseWindow = reuseWindow;
+        }
+        
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Option<Long> size() {
+            for (long n: resolveSize.apply(elements)) {
+                if (n == 0) {
+                    return Some(0l);
+                }
+                if (step > size) {
+                    return Some((n + step - 1) / step);
+                }
+                return Some(n <= size ? 1 : 1 + (n - size + step - 1) / step);
+            }
+            return None();
+        }
+        
+        public final Iterator<List<T>> iterator() {
+            if (force && elements instanceof ForceableIterable) {
+                ((ForceableIterable)elements).completeIterationNeeded();
+            }
+            return new Iterator<List<T>>() {
+                private final Iterator<T> it = elements.iterator();
+                private List<T> window = newListOfSize(Math.min(size, 1024));
+                private boolean first = true;
+                private int handedOut = 0;
+                private Boolean ready;
+                
+                public final boolean hasNext() {
+                    if (ready == null) {
+                        ready = advance();
+                    }
+                    return ready;
+                }
+                
+                /**
+                 * @return whether the window got any elements not yet returned.
+                 */
+                private final boolean advance() {
+                    if (!first) {
+                        int previous = handedOut + window.size();
+                        if (step >= previous) {
+                            for (long skip = step - previous; skip > 0 && it.hasNext(); --skip) {
+                                it.next();
+                            }
+                            window.clear();
+                        } else {
+                            window.subList(0, (int)step).clear();
+                        }
+                    }
+                    first = false;
+                    handedOut = 0;
+                    boolean added = false;
+                    while (window.size() < size && it.hasNext()) {
+                        window.add(it.next());
+                        added = true;
+                    }
+                    return added;
+                }
+
+                public final List<T> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ready = null;
+                    if (reuseWindow) {
+                        return window;
+                    }
+                    if (step >= size) {
+                        // nothing is kept for the next window, so this one can be handed out as is
+                        List<T> ret = window;
+                        window = newListOfSize(ret.size());
+                        handedOut = ret.size();
+                        return ret;
+                    }
+                    return newList(window);
+                }
+
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+    
+    /**
+     * Windows of consecutive elements, a new one starting whenever <i>windowStarts</i> accepts an element.
+     * Holds only the current window in memory.
+     */
+    static abstract class TumblingIterable<T> extends MyIterable<List<T>> implements ForceableIterable {
+        private final Iterable<T> elements;
+        private final boolean reuseWindow;
+        private boolean force = false;
+
+        public TumblingIterable(Iterable<T> elements, boolean reuseWindow) {
+            this.elements = elements;
+            this.reuseWindow = reuseWindow;
+        }
+        
+        /**
+         * @return a predicate telling whether an element starts a new window. Called once for every element, in order.
+         */
+        protected abstract Apply<T,Boolean> windowStarts();
+        
+        public final void completeIterationNeeded() {
+            this.force = true;
+        }
+        
+        public final Option<Long> size() {
+            Option<Long> size = resolveSize.apply(elements);
+            return size.isDefined() && size.get() <= 1 ? size : Option.<Long>None();
+        }
+        
+        public final Iterator<List<T>> iterator() {
+            if (force && elements instanceof ForceableIterable) {
+                ((ForceableIterable)elements).completeIterationNeeded();
+            }
+            return new Iterator<List<T>>() {
+                private final Iterator<T> it = elements.iterator();
+                private final Apply<T,Boolean> starts = windowStarts();
+                private final List<T> window = newList();
+                private boolean hasPending = false;
+                private T pending;
+                
+                public final boolean hasNext() {
+                    if (!hasPending && it.hasNext()) {
+                        pending = it.next();
+                        starts.apply(pending);
+                        hasPending = true;
+                    }
+                    return hasPending;
+                }
+
+                public final List<T> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    List<T> ret = reuseWindow ? window : Collections.<T>newList();
+                    ret.clear();
+                    ret.add(pending);
+                    hasPending = false;
+                    pending = null;
+                    while (it.hasNext()) {
+                        T t = it.next();
+                        if (starts.apply(t)) {
+                            pending = t;
+                            hasPending = true;
+                            break;
+                        }
+                        ret.add(t);
+                    }
+                    return ret;
+                }
+
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+    
+    static final class KeyTumblingIterable<T,K> extends TumblingIterable<T> {
+        private final Apply<? super T,K> key;
+
+        public KeyTumblingIterable(Iterable<T> elements, Apply<? super T,K> key, boolean reuseWindow) {
+            super(elements, reuseWindow);
+            this.key = key;
+        }
+
+        @Override
+        protected final Apply<T,Boolean> windowStarts() {
+            return new Predicate<T>() {
+                private boolean first = true;
+                private K previous;
+                @Override
+                public final boolean accept(T candidate) {
+                    K k = key.apply(candidate);
+                    boolean ret = first || !(previous == null ? k == null : previous.equals(k));
+                    first = false;
+                    previous = k;
+                    return ret;
+                }
+            };
+        }
+    }
+    
+    static final class PredicateTumblingIterable<T> extends TumblingIterable<T> {
+        private final Apply<T,Boolean> windowStarts;
+
+        @SuppressWarnings("unchecked")
+        public PredicateTumblingIterable(Iterable<T> elements, Apply<? super T,Boolean> windowStarts, boolean reuseWindow) {
+            super(elements, reuseWindow);
+            this.windowStarts = (Apply<T,Boolean>)windowStarts;
+        }
+
+        @Override
+        protected final Apply<T,Boolean> windowStarts() {
+            return windowStarts;
+        }
+    }
+    
     static final class GroupingIterable<T> extends MyIterable<Iterable<T>> implements ForceableIterable {
         private final Iterable<T> elements;
         private final Apply<Map.Entry<T,T>, Boolean> comparator;
@@ -921,7 +2829,7 @@ public abstract class Iterables {
                                 prev[0] = candidate;
                                 return true;
                             }
-                            boolean ret = comparator.apply(Tuple.of((T)prev[0], candidate));
+                            boolean ret = Function2.applyUntuppled(comparator, (T)prev[0], candidate);
                             prev[0] = candidate;
                             return ret;
                         }
@@ -0,0 +1,74 @@
+package fi.solita.utils.functional;
+
+/**
+ * Value computed on first use. The supplier is run at most once even when many threads ask
+ * for the value at the same time, and a null result is remembered like any other.
+ *
+ * If the supplier throws, a Lazy from <i>of</i> tries again on the next call, whereas one from
+ * <i>cachingFailures</i> rethrows the same exception from then on. Errors are never cached.
+ */
+public final class Lazy<T> extends Function0<T> {
+    // an enum, so that it stays the same instance when deserialized
+    private enum Unset { INSTANCE }
+    private static final Object UNSET = Unset.INSTANCE;
+
+    private final boolean cacheFailures;
+    // released once computed, so that whatever it holds can be collected
+    private volatile Supplier<? extends T> supplier;
+    private volatile Object value = UNSET;
+    private volatile RuntimeException failure;
+
+    private Lazy(Supplier<? extends T> supplier, boolean cacheFailures) {
+        this.supplier = supplier;
+        this.cacheFailures = cacheFailures;
+    }
+
+    public static final <T> Lazy<T> of(Supplier<? extends T> supplier) {
+        return new Lazy<T>(supplier, false);
+    }
+
+    public static final <T> Lazy<T> cachingFailures(Supplier<? extends T> supplier) {
+        return new Lazy<T>(supplier, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T apply() {
+        Object v = value;
+        if (v == UNSET) {
+            synchronized (this) {
+                v = value;
+                if (v == UNSET) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    try {
+                        v = supplier.apply();
+                    } catch (RuntimeException e) {
+                        if (cacheFailures) {
+                            failure = e;
+                            supplier = null;
+                        }
+                        throw e;
+                    }
+                    value = v;
+                    supplier = null;
+                }
+            }
+        }
+        return (T)v;
+    }
+
+    /**
+     * @return whether the value has been computed.
+     */
+    public final boolean isInitialized() {
+        return value != UNSET;
+    }
+
+    @Override
+    public final String toString() {
+        Object v = value;
+        return v == UNSET ? "Lazy(?)" : "Lazy(" + v + ")";
+    }
+}
@@ -0,0 +1,193 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Option.None;
+import static fi.solita.utils.functional.Option.Some;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterable of primitive longs. Iterating with <i>longIterator</i>, and the operations here, don't box.
+ * Like the rest of the library, <i>map</i> and <i>filter</i> are lazy.
+ */
+public abstract class LongIterable implements Iterable<Long>, Iterables.PossiblySizeAwareIterable<Long> {
+    public static interface LongIterator {
+        boolean hasNext();
+        long nextLong();
+    }
+    
+    public static interface LongTransformer {
+        long transform(long source);
+    }
+    
+    public static interface LongPredicate {
+        boolean accept(long candidate);
+    }
+    
+    public abstract LongIterator longIterator();
+    
+    /**
+     * @return the number of elements, if known without iterating.
+     */
+    public Option<Long> size() {
+        return None();
+    }
+    
+    public final Iterator<Long> iterator() {
+        final LongIterator it = longIterator();
+        return new Iterator<Long>() {
+            public final boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public final Long next() {
+                return it.nextLong();
+            }
+
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    public final LongIterable map(final LongTransformer f) {
+        final LongIterable source = this;
+        return new LongIterable() {
+            @Override
+            public final LongIterator longIterator() {
+                final LongIterator it = source.longIterator();
+                return new LongIterator() {
+                    public final boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    
+                    public final long nextLong() {
+                        return f.transform(it.nextLong());
+                    }
+                };
+            }
+            
+            @Override
+            public final Option<Long> size() {
+                return source.size();
+            }
+        };
+    }
+    
+    public final LongIterable filter(final LongPredicate p) {
+        final LongIterable source = this;
+        return new LongIterable() {
+            @Override
+            public final LongIterator longIterator() {
+                final LongIterator it = source.longIterator();
+                return new LongIterator() {
+                    private boolean ready = false;
+                    private long next;
+                    
+                    public final boolean hasNext() {
+                        while (!ready && it.hasNext()) {
+                            next = it.nextLong();
+                            ready = p.accept(next);
+                        }
+                        return ready;
+                    }
+                    
+                    public final long nextLong() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        ready = false;
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+    
+    /**
+     * Lazy. Keeps the elements seen so far in a primitive set.
+     */
+    public final LongIterable distinct() {
+        final LongIterable source = this;
+        return new LongIterable() {
+            @Override
+            public final LongIterator longIterator() {
+                final LongSet visited = new LongSet();
+                return source.filter(new LongPredicate() {
+                    public final boolean accept(long candidate) {
+                        return visited.add(candidate);
+                    }
+                }).longIterator();
+            }
+        };
+    }
+    
+    public long fold(long zero, LongSemiGroup f) {
+        long ret = zero;
+        for (LongIterator it = longIterator(); it.hasNext();) {
+            ret = f.applyLong(ret, it.nextLong());
+        }
+        return ret;
+    }
+    
+    public final long reduce(LongMonoid m) {
+        return fold(m.zeroLong(), m);
+    }
+    
+    public long sum() {
+        long ret = 0;
+        for (LongIterator it = longIterator(); it.hasNext();) {
+            ret += it.nextLong();
+        }
+        return ret;
+    }
+    
+    public Option<Long> min() {
+        LongIterator it = longIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        long ret = it.nextLong();
+        while (it.hasNext()) {
+            long x = it.nextLong();
+            if (x < ret) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public Option<Long> max() {
+        LongIterator it = longIterator();
+        if (!it.hasNext()) {
+            return None();
+        }
+        long ret = it.nextLong();
+        while (it.hasNext()) {
+            long x = it.nextLong();
+            if (x > ret) {
+                ret = x;
+            }
+        }
+        return Some(ret);
+    }
+    
+    public long[] toArray() {
+        Option<Long> size = size();
+        long[] ret = new long[Iterables.arrayCapacity(size)];
+        int i = 0;
+        for (LongIterator it = longIterator(); it.hasNext();) {
+            if (i == ret.length) {
+                ret = Arrays.copyOf(ret, Iterables.grownCapacity(ret.length));
+            }
+            ret[i++] = it.nextLong();
+        }
+        return i == ret.length ? ret : Arrays.copyOf(ret, i);
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,81 @@
+package fi.solita.utils.functional;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list backed by a long array. Elements are boxed only when read through the <i>List</i> interface,
+ * <i>getLong</i> and <i>longs</i> don't box.
+ */
+public final class LongList extends Iterables.PrimitiveList<Long> {
+    private final long[] xs;
+
+    LongList(long[] xs) {
+        this.xs = xs;
+    }
+
+    public final long getLong(int index) {
+        return xs[index];
+    }
+
+    /**
+     * @return a view of this list that can be iterated without boxing.
+     */
+    public final LongIterable longs() {
+        return new Iterables.LongArrayIterable(xs, 0, xs.length);
+    }
+
+    public final long[] toLongArray() {
+        return xs.clone();
+    }
+
+    @Override
+    public final Long get(int index) {
+        return xs[index];
+    }
+
+    @Override
+    public final int size() {
+        return xs.length;
+    }
+
+    @Override
+    public final boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public final int indexOf(Object o) {
+        if (o instanceof Long) {
+            long x = (Long)o;
+            for (int i = 0; i < xs.length; ++i) {
+                if (xs[i] == x) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int lastIndexOf(Object o) {
+        if (o instanceof Long) {
+            long x = (Long)o;
+            for (int i = xs.length - 1; i >= 0; --i) {
+                if (xs[i] == x) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Arrays.hashCode(xs);
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        return o instanceof LongList ? Arrays.equals(xs, ((LongList)o).xs) : super.equals(o);
+    }
+}
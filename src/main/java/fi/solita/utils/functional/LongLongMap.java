@@ -0,0 +1,257 @@
+package fi.solita.utils.functional;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from primitive longs to primitive longs with open addressing, so that there are no boxes or entry objects.
+ * The <i>Map</i> interface boxes, and its views don't support removal.
+ */
+public final class LongLongMap extends AbstractMap<Long,Long> {
+    private static final long EMPTY = 0;
+    
+    private long[] keys;
+    private long[] values;
+    private boolean hasEmptyKey = false;
+    private long emptyKeyValue;
+    private int size = 0;
+    
+    public LongLongMap() {
+        this(16);
+    }
+    
+    public LongLongMap(long expectedSize) {
+        int capacity = LongSet.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+    
+    @Override
+    public final int size() {
+        return size;
+    }
+    
+    private final int slot(long key) {
+        long[] t = keys;
+        int mask = t.length - 1;
+        int i = LongSet.mix(key) & mask;
+        while (t[i] != key && t[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+    
+    public final boolean containsKey(long key) {
+        return key == EMPTY ? hasEmptyKey : keys[slot(key)] == key;
+    }
+    
+    public final long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : defaultValue;
+        }
+        int i = slot(key);
+        return keys[i] == key ? values[i] : defaultValue;
+    }
+    
+    public final void put(long key, long value) {
+        if (key == EMPTY) {
+            emptyKeyValue = value;
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            return;
+        }
+        int i = slot(key);
+        if (keys[i] == key) {
+            values[i] = value;
+        } else {
+            insert(i, key, value);
+        }
+    }
+    
+    /**
+     * Adds <i>delta</i> to the value of <i>key</i>, which is 0 when missing.
+     * @return the new value.
+     */
+    public final long addTo(long key, long delta) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                emptyKeyValue = 0;
+                size++;
+            }
+            return emptyKeyValue += delta;
+        }
+        int i = slot(key);
+        if (keys[i] == key) {
+            return values[i] += delta;
+        }
+        insert(i, key, delta);
+        return delta;
+    }
+    
+    /**
+     * @return whether <i>key</i> was in the map.
+     */
+    public final boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                return false;
+            }
+            hasEmptyKey = false;
+            size--;
+            return true;
+        }
+        int i = slot(key);
+        if (keys[i] != key) {
+            return false;
+        }
+        delete(i);
+        size--;
+        return true;
+    }
+    
+    @Override
+    public final Long get(Object key) {
+        if (key instanceof Long) {
+            long k = (Long)key;
+            if (containsKey(k)) {
+                return get(k, 0);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public final Long put(Long key, Long value) {
+        Long ret = get(key);
+        put(key.longValue(), value.longValue());
+        return ret;
+    }
+    
+    @Override
+    public final Long remove(Object key) {
+        Long ret = get(key);
+        if (ret != null) {
+            remove(((Long)key).longValue());
+        }
+        return ret;
+    }
+    
+    @Override
+    public final boolean containsKey(Object key) {
+        return key instanceof Long && containsKey(((Long)key).longValue());
+    }
+    
+    private final void insert(int i, long key, long value) {
+        keys[i] = key;
+        values[i] = value;
+        if (LongSet.overloaded(++size, keys.length)) {
+            grow();
+        }
+    }
+    
+    /**
+     * Moves later entries of the probe sequence back over slot <i>i</i>, so that no tombstones are needed.
+     */
+    private final void delete(int i) {
+        long[] t = keys;
+        int mask = t.length - 1;
+        for (int j = (i + 1) & mask; t[j] != EMPTY; j = (j + 1) & mask) {
+            // an entry can move back only if its home slot isn't between i and j
+            if (((j - LongSet.mix(t[j])) & mask) >= ((j - i) & mask)) {
+                t[i] = t[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        t[i] = EMPTY;
+    }
+    
+    private final void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        if (oldKeys.length == 1 << 30) {
+            throw new IllegalStateException("Too many entries");
+        }
+        long[] t = new long[oldKeys.length * 2];
+        long[] vs = new long[t.length];
+        int mask = t.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            long e = oldKeys[j];
+            if (e != EMPTY) {
+                int i = LongSet.mix(e) & mask;
+                while (t[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                t[i] = e;
+                vs[i] = oldValues[j];
+            }
+        }
+        keys = t;
+        values = vs;
+    }
+    
+    @Override
+    public final void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        hasEmptyKey = false;
+        emptyKeyValue = 0;
+        size = 0;
+    }
+    
+    @Override
+    public final Set<Map.Entry<Long,Long>> entrySet() {
+        return new AbstractSet<Map.Entry<Long,Long>>() {
+            @Override
+            public final int size() {
+                return size;
+            }
+            
+            @Override
+            public final Iterator<Map.Entry<Long,Long>> iterator() {
+                final long[] t = keys;
+                final long[] vs = values;
+                return new Iterator<Map.Entry<Long,Long>>() {
+                    private boolean emptyPending = hasEmptyKey;
+                    private int i = advance(0);
+                    
+                    private final int advance(int from) {
+                        while (from < t.length && t[from] == EMPTY) {
+                            from++;
+                        }
+                        return from;
+                    }
+                    
+                    public final boolean hasNext() {
+                        return emptyPending || i < t.length;
+                    }
+                    
+                    public final Map.Entry<Long,Long> next() {
+                        if (emptyPending) {
+                            emptyPending = false;
+                            return new AbstractMap.SimpleImmutableEntry<Long,Long>(EMPTY, emptyKeyValue);
+                        }
+                        if (i >= t.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<Long,Long> ret = new AbstractMap.SimpleImmutableEntry<Long,Long>(t[i], vs[i]);
+                        i = advance(i + 1);
+                        return ret;
+                    }
+                    
+                    public final void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
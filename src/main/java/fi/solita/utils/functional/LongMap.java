@@ -0,0 +1,237 @@
+package fi.solita.utils.functional;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from primitive longs to objects with open addressing, so that there are no boxed keys or entry objects.
+ * The <i>Map</i> interface boxes, and its views don't support removal.
+ */
+public final class LongMap<V> extends AbstractMap<Long,V> {
+    private static final long EMPTY = 0;
+    
+    private long[] keys;
+    private Object[] values;
+    private boolean hasEmptyKey = false;
+    private V emptyKeyValue;
+    private int size = 0;
+    
+    public LongMap() {
+        this(16);
+    }
+    
+    public LongMap(long expectedSize) {
+        int capacity = LongSet.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+    
+    @Override
+    public final int size() {
+        return size;
+    }
+    
+    private final int slot(long key) {
+        long[] t = keys;
+        int mask = t.length - 1;
+        int i = LongSet.mix(key) & mask;
+        while (t[i] != key && t[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+    
+    public final boolean containsKey(long key) {
+        return key == EMPTY ? hasEmptyKey : keys[slot(key)] == key;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public final V get(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : null;
+        }
+        int i = slot(key);
+        return keys[i] == key ? (V)values[i] : null;
+    }
+    
+    /**
+     * @return the previous value of <i>key</i>, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public final V put(long key, V value) {
+        if (key == EMPTY) {
+            V ret = emptyKeyValue;
+            emptyKeyValue = value;
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            return ret;
+        }
+        int i = slot(key);
+        if (keys[i] == key) {
+            V ret = (V)values[i];
+            values[i] = value;
+            return ret;
+        }
+        insert(i, key, value);
+        return null;
+    }
+    
+    /**
+     * @return the removed value of <i>key</i>, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public final V remove(long key) {
+        if (key == EMPTY) {
+            V ret = emptyKeyValue;
+            if (hasEmptyKey) {
+                hasEmptyKey = false;
+                emptyKeyValue = null;
+                size--;
+            }
+            return ret;
+        }
+        int i = slot(key);
+        if (keys[i] != key) {
+            return null;
+        }
+        V ret = (V)values[i];
+        delete(i);
+        size--;
+        return ret;
+    }
+    
+    @Override
+    public final V get(Object key) {
+        return key instanceof Long ? get(((Long)key).longValue()) : null;
+    }
+    
+    @Override
+    public final V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+    
+    @Override
+    public final V remove(Object key) {
+        return key instanceof Long ? remove(((Long)key).longValue()) : null;
+    }
+    
+    @Override
+    public final boolean containsKey(Object key) {
+        return key instanceof Long && containsKey(((Long)key).longValue());
+    }
+    
+    private final void insert(int i, long key, V value) {
+        keys[i] = key;
+        values[i] = value;
+        if (LongSet.overloaded(++size, keys.length)) {
+            grow();
+        }
+    }
+    
+    /**
+     * Moves later entries of the probe sequence back over slot <i>i</i>, so that no tombstones are needed.
+     */
+    private final void delete(int i) {
+        long[] t = keys;
+        int mask = t.length - 1;
+        for (int j = (i + 1) & mask; t[j] != EMPTY; j = (j + 1) & mask) {
+            // an entry can move back only if its home slot isn't between i and j
+            if (((j - LongSet.mix(t[j])) & mask) >= ((j - i) & mask)) {
+                t[i] = t[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        t[i] = EMPTY;
+        values[i] = null;
+    }
+    
+    private final void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        if (oldKeys.length == 1 << 30) {
+            throw new IllegalStateException("Too many entries");
+        }
+        long[] t = new long[oldKeys.length * 2];
+        Object[] vs = new Object[t.length];
+        int mask = t.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            long e = oldKeys[j];
+            if (e != EMPTY) {
+                int i = LongSet.mix(e) & mask;
+                while (t[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                t[i] = e;
+                vs[i] = oldValues[j];
+            }
+        }
+        keys = t;
+        values = vs;
+    }
+    
+    @Override
+    public final void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        hasEmptyKey = false;
+        emptyKeyValue = null;
+        size = 0;
+    }
+    
+    @Override
+    public final Set<Map.Entry<Long,V>> entrySet() {
+        return new AbstractSet<Map.Entry<Long,V>>() {
+            @Override
+            public final int size() {
+                return size;
+            }
+            
+            @Override
+            public final Iterator<Map.Entry<Long,V>> iterator() {
+                final long[] t = keys;
+                final Object[] vs = values;
+                return new Iterator<Map.Entry<Long,V>>() {
+                    private boolean emptyPending = hasEmptyKey;
+                    private int i = advance(0);
+                    
+                    private final int advance(int from) {
+                        while (from < t.length && t[from] == EMPTY) {
+                            from++;
+                        }
+                        return from;
+                    }
+                    
+                    public final boolean hasNext() {
+                        return emptyPending || i < t.length;
+                    }
+                    
+                    @SuppressWarnings("unchecked")
+                    public final Map.Entry<Long,V> next() {
+                        if (emptyPending) {
+                            emptyPending = false;
+                            return new AbstractMap.SimpleImmutableEntry<Long,V>(EMPTY, emptyKeyValue);
+                        }
+                        if (i >= t.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<Long,V> ret = new AbstractMap.SimpleImmutableEntry<Long,V>(t[i], (V)vs[i]);
+                        i = advance(i + 1);
+                        return ret;
+                    }
+                    
+                    public final void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
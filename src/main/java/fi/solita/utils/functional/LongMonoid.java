@@ -0,0 +1,5 @@
+package fi.solita.utils.functional;
+
+public interface LongMonoid extends LongSemiGroup, Monoid<Long> {
+    long zeroLong();
+}
@@ -0,0 +1,8 @@
+package fi.solita.utils.functional;
+
+/**
+ * A SemiGroup that can also combine unboxed longs.
+ */
+public interface LongSemiGroup extends SemiGroup<Long> {
+    long applyLong(long first, long second);
+}
@@ -103,6 +103,13 @@ public abstract class Match {
         return err(separator, xs, 5);
     }
     
+    private static final <T> List<T> asList(Iterable<T> ts) {
+        for (List<T> list: Iterables.randomAccess(ts)) {
+            return list;
+        }
+        return newList(ts);
+    }
+    
     private static <T extends Tuple> Try<String, T> err(char separator, CharSequence xs, int parts) {
         return Try.failure(separator + " does not separate " + xs + " to exactly " + parts + "  parts");
     }
@@ -134,7 +141,7 @@ public abstract class Match {
     }
     
     public static final <T> Try<String,T> singleton(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 1) {
             return Try.success(arr.get(0));
         }
@@ -142,7 +149,7 @@ public abstract class Match {
     }
     
     public static final <T> Try<String,Tuple2<T,T>> tuple2(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 2) {
             return Try.success(Tuple.of(arr.get(0), arr.get(1)));
         }
@@ -150,7 +157,7 @@ public abstract class Match {
     }
 
     public static final <T> Try<String,Pair<T,T>> pair(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 2) {
             return Try.success(Pair.of(arr.get(0), arr.get(1)));
         }
@@ -158,7 +165,7 @@ public abstract class Match {
     }
     
     public static final <T> Try<String,Tuple3<T,T,T>> tuple3(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 3) {
             return Try.success(Pair.of(arr.get(0), arr.get(1), arr.get(2)));
         }
@@ -166,7 +173,7 @@ public abstract class Match {
     }
     
     public static final <T> Try<String,Tuple4<T,T,T,T>> tuple4(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 4) {
             return Try.success(Pair.of(arr.get(0), arr.get(1), arr.get(2), arr.get(3)));
         }
@@ -174,7 +181,7 @@ public abstract class Match {
     }
     
     public static final <T> Try<String,Tuple5<T,T,T,T,T>> tuple5(Iterable<T> ts) {
-        List<T> arr = newList(ts);
+        List<T> arr = asList(ts);
         if (arr.size() == 5) {
             return Try.success(Pair.of(arr.get(0), arr.get(1), arr.get(2), arr.get(3), arr.get(4)));
         }
@@ -0,0 +1,384 @@
+package fi.solita.utils.functional;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe memoization of a Function1, created with <i>Function.memoize</i>.
+ *
+ * Each key is loaded by one thread at a time, others asking for the same key wait for it. Null keys and
+ * null values are cached like any other. A failed load is not cached, but is thrown to everyone waiting for it.
+ *
+ * When bounded, the least recently used entries are evicted. Reads are recorded into a buffer which is
+ * drained by whichever thread gets the eviction lock, so reads don't contend on the lock.
+ *
+ * An entry older than <i>expireAfterWrite</i> is loaded again as if it was missing. Expired entries nobody
+ * reads are removed by a sweep, done by a loading thread at most once per <i>expireAfterWrite</i>, or by <i>cleanUp</i>.
+ * An entry older than <i>refreshAfterWrite</i> is reloaded by the first thread reading it, while others get the old value.
+ *
+ * Serializes as its function and settings only, so a deserialized instance starts with an empty cache.
+ */
+public final class Memoized<T,R> extends Function1<T,R> {
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final Object NULL_KEY = new Object();
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+    private static final int READ_BUFFER_MAX_SIZE = 1024;
+
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long loadFailures;
+
+        Stats(long hits, long misses, long evictions, long loadFailures) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.loadFailures = loadFailures;
+        }
+
+        public final double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double)hits / requests;
+        }
+
+        @Override
+        public final String toString() {
+            return "Stats(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", loadFailures=" + loadFailures + ")";
+        }
+    }
+
+    private static final class Node<T,R> {
+        final T key;
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile R value;
+        volatile long writtenAt;
+        volatile RuntimeException loadException;
+        volatile Error loadError;
+
+        // guarded by evictionLock
+        Node<T,R> prev;
+        Node<T,R> next;
+        boolean linked;
+
+        Node(T key) {
+            this.key = key;
+        }
+    }
+
+    private final Apply<? super T,? extends R> f;
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+
+    private final ConcurrentHashMap<Object,Node<T,R>> nodes = new ConcurrentHashMap<Object,Node<T,R>>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Queue<Node<T,R>> readBuffer = new ConcurrentLinkedQueue<Node<T,R>>();
+    private final AtomicInteger readBufferSize = new AtomicInteger();
+    // least recently used first, guarded by evictionLock
+    private final Node<T,R> lru;
+    private long linkedCount = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong nextExpirySweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param expireAfterWriteNanos 0 for never.
+     * @param refreshAfterWriteNanos 0 for never.
+     */
+    Memoized(Apply<? super T,? extends R> f, long maximumSize, long expireAfterWriteNanos, long refreshAfterWriteNanos) {
+        if (maximumSize < 1 || expireAfterWriteNanos < 0 || refreshAfterWriteNanos < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.f = f;
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        this.lru = new Node<T,R>(null);
+        lru.prev = lru;
+        lru.next = lru;
+    }
+
+    @Override
+    public final R apply(T t) {
+        Object k = t == null ? NULL_KEY : t;
+        while (true) {
+            Node<T,R> node = nodes.get(k);
+            if (node == null) {
+                Node<T,R> created = new Node<T,R>(t);
+                node = nodes.putIfAbsent(k, created);
+                if (node == null) {
+                    misses.incrementAndGet();
+                    sweepExpiredIfDue();
+                    return load(k, created);
+                }
+            }
+            awaitLoad(node);
+            long age = System.nanoTime() - node.writtenAt;
+            if (expireAfterWriteNanos > 0 && age >= expireAfterWriteNanos) {
+                if (nodes.remove(k, node)) {
+                    evictions.incrementAndGet();
+                    unlink(node);
+                }
+                continue;
+            }
+            hits.incrementAndGet();
+            recordRead(node);
+            if (refreshAfterWriteNanos > 0 && age >= refreshAfterWriteNanos && node.refreshing.compareAndSet(false, true)) {
+                return refresh(node);
+            }
+            return node.value;
+        }
+    }
+
+    private final R load(Object k, Node<T,R> node) {
+        try {
+            node.value = f.apply(node.key);
+            node.writtenAt = System.nanoTime();
+        } catch (RuntimeException e) {
+            node.loadException = e;
+        } catch (Error e) {
+            node.loadError = e;
+        } finally {
+            node.loaded.countDown();
+        }
+        if (node.loadException != null || node.loadError != null) {
+            loadFailures.incrementAndGet();
+            nodes.remove(k, node);
+            return rethrow(node);
+        }
+        if (maximumSize != UNBOUNDED) {
+            evictionLock.lock();
+            try {
+                drainReadBuffer();
+                // may have been invalidated during the load
+                if (nodes.get(k) == node) {
+                    linkLast(node);
+                    evict();
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    private final R refresh(Node<T,R> node) {
+        try {
+            R value = f.apply(node.key);
+            node.value = value;
+            node.writtenAt = System.nanoTime();
+            return value;
+        } catch (RuntimeException e) {
+            // keep serving the old value, and try again on the next read
+            loadFailures.incrementAndGet();
+            return node.value;
+        } finally {
+            node.refreshing.set(false);
+        }
+    }
+
+    private final void awaitLoad(Node<T,R> node) {
+        boolean interrupted = false;
+        while (node.loaded.getCount() > 0) {
+            try {
+                node.loaded.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (node.loadException != null || node.loadError != null) {
+            rethrow(node);
+        }
+    }
+
+    private static final <R> R rethrow(Node<?,R> node) {
+        if (node.loadError != null) {
+            throw node.loadError;
+        }
+        throw node.loadException;
+    }
+
+    private final void recordRead(Node<T,R> node) {
+        if (maximumSize == UNBOUNDED) {
+            return;
+        }
+        // losing some reads under heavy load only makes the recency approximate
+        if (readBufferSize.get() < READ_BUFFER_MAX_SIZE) {
+            readBuffer.offer(node);
+            readBufferSize.incrementAndGet();
+        }
+        // also when full, so that the recency keeps being updated
+        if (readBufferSize.get() >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private final void drainReadBuffer() {
+        Node<T,R> node;
+        while ((node = readBuffer.poll()) != null) {
+            readBufferSize.decrementAndGet();
+            if (node.linked) {
+                unlinkLocked(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    private final void linkLast(Node<T,R> node) {
+        node.prev = lru.prev;
+        node.next = lru;
+        lru.prev.next = node;
+        lru.prev = node;
+        node.linked = true;
+        linkedCount++;
+    }
+
+    private final void unlinkLocked(Node<T,R> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+        linkedCount--;
+    }
+
+    private final void unlink(Node<T,R> node) {
+        if (maximumSize == UNBOUNDED) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            if (node.linked) {
+                unlinkLocked(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private final void evict() {
+        while (linkedCount > maximumSize) {
+            Node<T,R> eldest = lru.next;
+            unlinkLocked(eldest);
+            if (nodes.remove(eldest.key == null ? NULL_KEY : eldest.key, eldest)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private final void sweepExpiredIfDue() {
+        if (expireAfterWriteNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextExpirySweep.get();
+        if (now - next >= 0 && nextExpirySweep.compareAndSet(next, now + expireAfterWriteNanos)) {
+            removeExpired(now);
+        }
+    }
+
+    private final void removeExpired(long now) {
+        for (Map.Entry<Object,Node<T,R>> e: nodes.entrySet()) {
+            Node<T,R> node = e.getValue();
+            // entries still loading have no write time yet
+            if (node.loaded.getCount() == 0 && now - node.writtenAt >= expireAfterWriteNanos && nodes.remove(e.getKey(), node)) {
+                evictions.incrementAndGet();
+                unlink(node);
+            }
+        }
+    }
+
+    /**
+     * Removes expired entries and applies pending reads to the eviction order, which otherwise
+     * happens gradually as the function is used.
+     */
+    public final void cleanUp() {
+        if (expireAfterWriteNanos > 0) {
+            removeExpired(System.nanoTime());
+        }
+        if (maximumSize != UNBOUNDED) {
+            evictionLock.lock();
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Forgets the value of <i>t</i>, so that it's loaded again when next needed.
+     */
+    public final void invalidate(T t) {
+        Node<T,R> node = nodes.remove(t == null ? NULL_KEY : t);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    public final void invalidateAll() {
+        for (Object k: nodes.keySet()) {
+            Node<T,R> node = nodes.remove(k);
+            if (node != null) {
+                unlink(node);
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached entries, including ones being loaded.
+     */
+    public final long size() {
+        return nodes.size();
+    }
+
+    public final Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), loadFailures.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private final Object writeReplace() {
+        return new SerializedForm((Apply<Object,Object>)f, maximumSize, expireAfterWriteNanos, refreshAfterWriteNanos);
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private final Apply<Object,Object> f;
+        private final long maximumSize;
+        private final long expireAfterWriteNanos;
+        private final long refreshAfterWriteNanos;
+
+        SerializedForm(Apply<Object,Object> f, long maximumSize, long expireAfterWriteNanos, long refreshAfterWriteNanos) {
+            this.f = f;
+            this.maximumSize = maximumSize;
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+            this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        }
+
+        private final Object readResolve() throws ObjectStreamException {
+            return new Memoized<Object,Object>(f, maximumSize, expireAfterWriteNanos, refreshAfterWriteNanos);
+        }
+    }
+}
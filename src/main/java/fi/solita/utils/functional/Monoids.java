@@ -13,9 +13,10 @@ public abstract class Monoids {
     }
     
     public static final <T> Monoid<T> of(final SemiGroup<T> sg, final Function0<T> zero) {
-        return new Monoid<T>() {
-            public T apply(Map.Entry<? extends T, ? extends T> t) {
-                return sg.apply(t);
+        return new MonoidFunction<T>() {
+            @Override
+            public T apply(T t1, T t2) {
+                return Function2.applyUntuppled(sg, t1, t2);
             }
 
             public T zero() {
@@ -24,6 +25,9 @@ public abstract class Monoids {
         };
     }
     
+    private static abstract class MonoidFunction<T> extends Function2<T,T,T> implements Monoid<T> {
+    }
+    
     public static final class BooleanDisjunction extends SemiGroups.BooleanDisjunction implements Monoid<Boolean> {
       public Boolean zero() {
           return false;
@@ -42,40 +46,64 @@ public abstract class Monoids {
       }
   }
   
-  public static final class IntProduct extends SemiGroups.IntProduct implements Monoid<Integer> {
+  public static final class IntProduct extends SemiGroups.IntProduct implements IntMonoid {
       public Integer zero() {
           return 1;
       }
+
+      public int zeroInt() {
+          return 1;
+      }
   }
 
-  public static final class IntSum extends SemiGroups.IntSum implements Monoid<Integer> {
+  public static final class IntSum extends SemiGroups.IntSum implements IntMonoid {
       public Integer zero() {
           return 0;
       }
+
+      public int zeroInt() {
+          return 0;
+      }
   }
 
-  public static final class LongProduct extends SemiGroups.LongProduct implements Monoid<Long> {
+  public static final class LongProduct extends SemiGroups.LongProduct implements LongMonoid {
       public Long zero() {
           return 1l;
       }
+
+      public long zeroLong() {
+          return 1;
+      }
   }
 
-  public static final class LongSum extends SemiGroups.LongSum implements Monoid<Long> {
+  public static final class LongSum extends SemiGroups.LongSum implements LongMonoid {
       public Long zero() {
           return 0l;
       }
+
+      public long zeroLong() {
+          return 0;
+      }
   }
   
-  public static final class DoubleProduct extends SemiGroups.DoubleProduct implements Monoid<Double> {
+  public static final class DoubleProduct extends SemiGroups.DoubleProduct implements DoubleMonoid {
       public Double zero() {
           return 1.0;
       }
+
+      public double zeroDouble() {
+          return 1.0;
+      }
   }
 
-  public static final class DoubleSum extends SemiGroups.DoubleSum implements Monoid<Double> {
+  public static final class DoubleSum extends SemiGroups.DoubleSum implements DoubleMonoid {
       public Double zero() {
           return 0.0;
       }
+
+      public double zeroDouble() {
+          return 0.0;
+      }
   }
   
   public static final class Endo<T> extends SemiGroups.Endo<T> implements Monoid<Apply<T,T>> {
@@ -8,4 +8,12 @@ public abstract class MultiParamFunction<T, R> implements Apply<T,R>, Serializab
     public final R apply(T t) {
         return tuppled().apply(t);
     }
+    
+    /**
+     * Applies to the elements of <i>args</i> directly, without building a tuple.
+     */
+    @SuppressWarnings("unchecked")
+    R applyArgs(Object[] args) {
+        return apply((T)Tuple.of(args));
+    }
 }
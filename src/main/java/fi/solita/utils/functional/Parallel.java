@@ -0,0 +1,283 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Collections.newArray;
+import static fi.solita.utils.functional.Collections.newList;
+import static fi.solita.utils.functional.Collections.newListOfSize;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reduces with a Monoid on multiple threads. Since a Monoid is associative, the input can be split into
+ * chunks which are reduced separately and the partial results then combined in order. Grouping works the same way.
+ *
+ * Lists with random access, arrays, finite int and long ranges, and concatenations, maps, filters and zips
+ * of these are split without copying. Anything else, and anything smaller than <i>threshold</i>, is reduced
+ * sequentially.
+ *
+ * Reducing from inside a task of the same executor, e.g. a nested reduce on <i>defaults()</i>, is allowed:
+ * a thread waiting for its chunks runs the ones no other thread has started yet.
+ */
+public final class Parallel {
+    public static final long DEFAULT_THRESHOLD = 10000;
+
+    private static final int processors = Runtime.getRuntime().availableProcessors();
+
+    private static final class Defaults {
+        static final Parallel instance = new Parallel(Executors.newFixedThreadPool(processors, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public final Thread newThread(Runnable r) {
+                Thread ret = new Thread(r, "functional-utils-parallel-" + count.incrementAndGet());
+                ret.setDaemon(true);
+                return ret;
+            }
+        }));
+    }
+
+    /**
+     * @return an instance using a shared pool of daemon threads, one per available processor.
+     */
+    public static final Parallel defaults() {
+        return Defaults.instance;
+    }
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long threshold;
+
+    public Parallel(ExecutorService executor) {
+        this(executor, processors, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism number of threads <i>executor</i> is expected to run concurrently.
+     * @param threshold inputs smaller than this are reduced sequentially, and no chunk is made smaller than this.
+     */
+    public Parallel(ExecutorService executor, int parallelism, long threshold) {
+        if (parallelism < 1 || threshold < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final <T> T reduce(final Monoid<T> m, Iterable<? extends T> xs) {
+        if (xs == null) {
+            return null;
+        }
+        Option<Long> size = Iterables.resolveSize.apply(xs);
+        if (size.isDefined() && size.get() < threshold) {
+            return FunctionalImpl.reduce(m, xs);
+        }
+        List<Iterable<T>> chunks = Iterables.chunks((Iterable<T>)xs, size.isDefined() ? chunkSize(size.get()) : threshold, parallelism * 4);
+        if (chunks.size() < 2) {
+            return FunctionalImpl.reduce(m, xs);
+        }
+        List<Callable<T>> tasks = newListOfSize(chunks.size());
+        for (final Iterable<T> chunk: chunks) {
+            tasks.add(new Callable<T>() {
+                public final T call() {
+                    return FunctionalImpl.reduce(m, chunk);
+                }
+            });
+        }
+        return run(m, tasks);
+    }
+
+    /**
+     * Groups each chunk into a map of its own, and merges the maps in order, so that the elements
+     * of each group stay in input order.
+     */
+    public final <G, T> Map<G, List<T>> groupBy(final Apply<? super T,G> f, Iterable<T> xs) {
+        if (xs == null) {
+            return null;
+        }
+        Option<Long> size = Iterables.resolveSize.apply(xs);
+        if (size.isDefined() && size.get() < threshold) {
+            return FunctionalImpl.groupBy(f, xs);
+        }
+        List<Iterable<T>> chunks = Iterables.chunks(xs, size.isDefined() ? chunkSize(size.get()) : threshold, parallelism * 4);
+        if (chunks.size() < 2) {
+            return FunctionalImpl.groupBy(f, xs);
+        }
+        List<Callable<Map<G, List<T>>>> tasks = newListOfSize(chunks.size());
+        for (final Iterable<T> chunk: chunks) {
+            tasks.add(new Callable<Map<G, List<T>>>() {
+                public final Map<G, List<T>> call() {
+                    return FunctionalImpl.groupBy(f, chunk);
+                }
+            });
+        }
+        return run(new GroupMerge<G, T>(), tasks);
+    }
+    
+    /**
+     * Merges the right map into the left one, which is fine only since both are private to <i>groupBy</i>.
+     */
+    private static final class GroupMerge<G, T> extends Function2<Map<G, List<T>>, Map<G, List<T>>, Map<G, List<T>>> implements SemiGroup<Map<G, List<T>>> {
+        @Override
+        public final Map<G, List<T>> apply(Map<G, List<T>> left, Map<G, List<T>> right) {
+            for (Map.Entry<G, List<T>> e: right.entrySet()) {
+                List<T> group = left.get(e.getKey());
+                if (group == null) {
+                    left.put(e.getKey(), e.getValue());
+                } else {
+                    group.addAll(e.getValue());
+                }
+            }
+            return left;
+        }
+    }
+
+    public final <T> T reduce(Monoid<T> m, T[] xs) {
+        return xs == null ? null : reduce(m, Arrays.asList(xs));
+    }
+
+    /**
+     * @throws IllegalArgumentException if <i>xs</i> is null, since a primitive result can't be null.
+     */
+    public final long reduce(Monoid<Long> m, final long[] xs) {
+        checkNotNull(xs);
+        if (!(m instanceof LongMonoid)) {
+            return reduce(m, newList(newArray(xs)));
+        }
+        final LongMonoid lm = (LongMonoid)m;
+        if (xs.length < threshold) {
+            return FunctionalImpl.reduce(lm, xs);
+        }
+        int chunkSize = (int)chunkSize(xs.length);
+        List<Callable<Long>> tasks = newList();
+        for (int i = 0; i < xs.length; i += chunkSize) {
+            final int from = i;
+            final int to = (int)Math.min(xs.length, (long)i + chunkSize);
+            tasks.add(new Callable<Long>() {
+                public final Long call() {
+                    return FunctionalImpl.reduce(lm, xs, from, to);
+                }
+            });
+        }
+        return run(m, tasks);
+    }
+
+    /**
+     * @throws IllegalArgumentException if <i>xs</i> is null, since a primitive result can't be null.
+     */
+    public final int reduce(Monoid<Integer> m, final int[] xs) {
+        checkNotNull(xs);
+        if (!(m instanceof IntMonoid)) {
+            return reduce(m, newList(newArray(xs)));
+        }
+        final IntMonoid im = (IntMonoid)m;
+        if (xs.length < threshold) {
+            return FunctionalImpl.reduce(im, xs);
+        }
+        int chunkSize = (int)chunkSize(xs.length);
+        List<Callable<Integer>> tasks = newList();
+        for (int i = 0; i < xs.length; i += chunkSize) {
+            final int from = i;
+            final int to = (int)Math.min(xs.length, (long)i + chunkSize);
+            tasks.add(new Callable<Integer>() {
+                public final Integer call() {
+                    return FunctionalImpl.reduce(im, xs, from, to);
+                }
+            });
+        }
+        return run(m, tasks);
+    }
+
+    /**
+     * @throws IllegalArgumentException if <i>xs</i> is null, since a primitive result can't be null.
+     */
+    public final double reduce(Monoid<Double> m, final double[] xs) {
+        checkNotNull(xs);
+        if (!(m instanceof DoubleMonoid)) {
+            return reduce(m, newList(newArray(xs)));
+        }
+        final DoubleMonoid dm = (DoubleMonoid)m;
+        if (xs.length < threshold) {
+            return FunctionalImpl.reduce(dm, xs);
+        }
+        int chunkSize = (int)chunkSize(xs.length);
+        List<Callable<Double>> tasks = newList();
+        for (int i = 0; i < xs.length; i += chunkSize) {
+            final int from = i;
+            final int to = (int)Math.min(xs.length, (long)i + chunkSize);
+            tasks.add(new Callable<Double>() {
+                public final Double call() {
+                    return FunctionalImpl.reduce(dm, xs, from, to);
+                }
+            });
+        }
+        return run(m, tasks);
+    }
+
+    private static final void checkNotNull(Object array) {
+        if (array == null) {
+            throw new IllegalArgumentException("Passed null array");
+        }
+    }
+
+    /**
+     * A few chunks per thread, so that a slow chunk doesn't leave the other threads idle.
+     */
+    private final long chunkSize(long size) {
+        long chunks = parallelism * 4l;
+        return Math.min(Integer.MAX_VALUE, Math.max(threshold, (size + chunks - 1) / chunks));
+    }
+
+    /**
+     * Chunks still queued when the calling thread gets to them are run by the calling thread itself,
+     * so it only ever waits for chunks already running on another thread. Nested use from inside
+     * the pool thus can't deadlock, even though a thread of a fixed-size pool blocks while waiting.
+     */
+    private final <T> T run(SemiGroup<T> m, List<Callable<T>> tasks) {
+        List<FutureTask<T>> futures = newListOfSize(tasks.size());
+        try {
+            for (Callable<T> task: tasks.subList(1, tasks.size())) {
+                FutureTask<T> f = new FutureTask<T>(task);
+                futures.add(f);
+                executor.execute(f);
+            }
+            // the calling thread would just wait otherwise, so let it reduce the first chunk
+            T ret = tasks.get(0).call();
+            for (FutureTask<T> f: futures) {
+                // does nothing if a pool thread has already started it
+                f.run();
+                ret = Function2.applyUntuppled(m, ret, f.get());
+            }
+            return ret;
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (Exception e) {
+            throw rethrow(e);
+        } finally {
+            for (Future<T> f: futures) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private static final RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error) {
+            throw (Error)t;
+        }
+        throw new RuntimeException(t);
+    }
+}
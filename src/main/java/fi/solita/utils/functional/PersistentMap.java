@@ -0,0 +1,532 @@
+package fi.solita.utils.functional;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash map whose versions share structure. It is a hash array mapped trie of 32-way nodes, so
+ * <i>with</i> and <i>without</i> copy only the O(log32 n) nodes on the path to the key.
+ * For many changes in a row, <i>asTransient</i> makes them in place and <i>persistent</i> shares the result.
+ */
+public final class PersistentMap<K,V> extends AbstractMap<K,V> implements Serializable {
+    private static final Object NOT_FOUND = new Object();
+    private static final Node EMPTY_NODE = new BitmapNode(null, 0, new Object[0]);
+    private static final PersistentMap<?,?> EMPTY = new PersistentMap<Object,Object>(EMPTY_NODE, 0, false, null);
+
+    private final Node root;
+    private final int size;
+    private final boolean hasNull;
+    private final Object nullValue;
+
+    private PersistentMap(Node root, int size, boolean hasNull, Object nullValue) {
+        this.root = root;
+        this.size = size;
+        this.hasNull = hasNull;
+        this.nullValue = nullValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <K,V> PersistentMap<K,V> empty() {
+        return (PersistentMap<K,V>)EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <K,V> PersistentMap<K,V> of(Iterable<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        if (entries instanceof PersistentMap.EntrySet) {
+            return (PersistentMap<K,V>)((PersistentMap<?,?>.EntrySet)entries).map();
+        }
+        Transient<K,V> ret = PersistentMap.<K,V>empty().asTransient();
+        for (Map.Entry<? extends K, ? extends V> e: entries) {
+            ret.put(e.getKey(), e.getValue());
+        }
+        return ret.persistent();
+    }
+
+    static final int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final boolean eq(Object a, Object b) {
+        return a == b || a.equals(b);
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final V get(Object key) {
+        Object ret = find(key);
+        return ret == NOT_FOUND ? null : (V)ret;
+    }
+
+    @Override
+    public final boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    private final Object find(Object key) {
+        if (key == null) {
+            return hasNull ? nullValue : NOT_FOUND;
+        }
+        return root.find(0, hash(key), key);
+    }
+
+    /**
+     * @return a map where <i>key</i> is mapped to <i>value</i>, sharing the rest with this one.
+     */
+    public final PersistentMap<K,V> with(K key, V value) {
+        if (key == null) {
+            if (hasNull && nullValue == value) {
+                return this;
+            }
+            return new PersistentMap<K,V>(root, hasNull ? size : size + 1, true, value);
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = root.assoc(null, 0, hash(key), key, value, added);
+        return newRoot == root ? this : new PersistentMap<K,V>(newRoot, added[0] ? size + 1 : size, hasNull, nullValue);
+    }
+
+    /**
+     * @return a map without <i>key</i>, sharing the rest with this one.
+     */
+    public final PersistentMap<K,V> without(K key) {
+        if (key == null) {
+            return hasNull ? new PersistentMap<K,V>(root, size - 1, false, null) : this;
+        }
+        boolean[] removed = new boolean[1];
+        Node newRoot = root.without(null, 0, hash(key), key, removed);
+        return newRoot == root ? this : new PersistentMap<K,V>(newRoot == null ? EMPTY_NODE : newRoot, size - 1, hasNull, nullValue);
+    }
+
+    public final Transient<K,V> asTransient() {
+        return new Transient<K,V>(root, size, hasNull, nullValue);
+    }
+
+    @Override
+    public final Set<Map.Entry<K,V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        final PersistentMap<K,V> map() {
+            return PersistentMap.this;
+        }
+
+        @Override
+        public final int size() {
+            return size;
+        }
+
+        @Override
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<K,V>(root, hasNull, nullValue);
+        }
+    }
+
+    /**
+     * Mutable version of a PersistentMap, which changes the nodes it has created itself in place.
+     * Must not be used after <i>persistent</i>, or from many threads at once.
+     */
+    public static final class Transient<K,V> {
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+        private boolean hasNull;
+        private Object nullValue;
+
+        private Transient(Node root, int size, boolean hasNull, Object nullValue) {
+            this.root = root;
+            this.size = size;
+            this.hasNull = hasNull;
+            this.nullValue = nullValue;
+        }
+
+        private final void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+
+        public final int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final V get(Object key) {
+            ensureEditable();
+            if (key == null) {
+                return hasNull ? (V)nullValue : null;
+            }
+            Object ret = root.find(0, hash(key), key);
+            return ret == NOT_FOUND ? null : (V)ret;
+        }
+
+        public final Transient<K,V> put(K key, V value) {
+            ensureEditable();
+            if (key == null) {
+                if (!hasNull) {
+                    hasNull = true;
+                    size++;
+                }
+                nullValue = value;
+                return this;
+            }
+            boolean[] added = new boolean[1];
+            root = root.assoc(edit, 0, hash(key), key, value, added);
+            if (added[0]) {
+                size++;
+            }
+            return this;
+        }
+
+        public final Transient<K,V> remove(K key) {
+            ensureEditable();
+            if (key == null) {
+                if (hasNull) {
+                    hasNull = false;
+                    nullValue = null;
+                    size--;
+                }
+                return this;
+            }
+            boolean[] removed = new boolean[1];
+            Node newRoot = root.without(edit, 0, hash(key), key, removed);
+            root = newRoot == null ? EMPTY_NODE : newRoot;
+            if (removed[0]) {
+                size--;
+            }
+            return this;
+        }
+
+        public final PersistentMap<K,V> persistent() {
+            ensureEditable();
+            edit = null;
+            return new PersistentMap<K,V>(root, size, hasNull, nullValue);
+        }
+    }
+
+    static abstract class Node {
+        /**
+         * Pairs of key and value, or of null and a child node.
+         */
+        abstract Object[] array();
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return null if nothing is left.
+         */
+        abstract Node without(Object edit, int shift, int hash, Object key, boolean[] removed);
+    }
+
+    static final class BitmapNode extends Node {
+        private final Object edit;
+        private final int bitmap;
+        private final Object[] array;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private static final int bitpos(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        private final int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        final Object[] array() {
+            return array;
+        }
+
+        @Override
+        final Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node)array[i + 1]).find(shift + 5, hash, key);
+            }
+            return eq(key, k) ? array[i + 1] : NOT_FOUND;
+        }
+
+        private final BitmapNode set(Object edit, int i, Object a) {
+            if (edit != null && this.edit == edit) {
+                array[i] = a;
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[i] = a;
+            return new BitmapNode(edit, bitmap, newArray);
+        }
+
+        @Override
+        final Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int i = 2 * index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[i];
+                Object v = array[i + 1];
+                if (k == null) {
+                    Node child = ((Node)v).assoc(edit, shift + 5, hash, key, value, added);
+                    return child == v ? this : set(edit, i + 1, child);
+                }
+                if (eq(key, k)) {
+                    return v == value ? this : set(edit, i + 1, value);
+                }
+                added[0] = true;
+                Node child = pair(edit, shift + 5, k, v, hash, key, value);
+                if (edit != null && this.edit == edit) {
+                    array[i] = null;
+                    array[i + 1] = child;
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[i] = null;
+                newArray[i + 1] = child;
+                return new BitmapNode(edit, bitmap, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            newArray[i] = key;
+            newArray[i + 1] = value;
+            System.arraycopy(array, i, newArray, i + 2, array.length - i);
+            return new BitmapNode(edit, bitmap | bit, newArray);
+        }
+
+        private static final Node pair(Object edit, int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = hash(k1);
+            if (h1 == h2) {
+                return new CollisionNode(edit, h1, new Object[] {k1, v1, k2, v2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY_NODE.assoc(edit, shift, h1, k1, v1, added).assoc(edit, shift, h2, k2, v2, added);
+        }
+
+        @Override
+        final Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node)v).without(edit, shift + 5, hash, key, removed);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return set(edit, i + 1, child);
+                }
+            } else if (eq(key, k)) {
+                removed[0] = true;
+            } else {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+    }
+
+    /**
+     * Keys with the same full hash.
+     */
+    static final class CollisionNode extends Node {
+        private final Object edit;
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            this.edit = edit;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        final Object[] array() {
+            return array;
+        }
+
+        private final int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (eq(key, array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        final Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i == -1 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        final Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // push this node one level down, next to the new key
+                Object[] single = new Object[] {null, this};
+                return new BitmapNode(edit, 1 << ((this.hash >>> shift) & 31), single).assoc(edit, shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i != -1) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                if (edit != null && this.edit == edit) {
+                    array[i + 1] = value;
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[i + 1] = value;
+                return new CollisionNode(edit, hash, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        final Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            int i = indexOf(key);
+            if (i == -1) {
+                return this;
+            }
+            removed[0] = true;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new CollisionNode(edit, hash, newArray);
+        }
+    }
+
+    /**
+     * Depth first, with an explicit stack of node arrays.
+     */
+    private static final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        // 7 levels of 5 bits, and a collision node below them
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = 0;
+        private boolean nullPending;
+        private final Object nullValue;
+
+        EntryIterator(Node root, boolean hasNull, Object nullValue) {
+            this.nullPending = hasNull;
+            this.nullValue = nullValue;
+            arrays[0] = root.array();
+            advance();
+        }
+
+        private final void advance() {
+            while (depth >= 0) {
+                Object[] a = arrays[depth];
+                int i = positions[depth];
+                if (i >= a.length) {
+                    depth--;
+                    if (depth >= 0) {
+                        positions[depth] += 2;
+                    }
+                } else if (a[i] == null) {
+                    depth++;
+                    arrays[depth] = ((Node)a[i + 1]).array();
+                    positions[depth] = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        public final boolean hasNext() {
+            return nullPending || depth >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final Map.Entry<K,V> next() {
+            if (nullPending) {
+                nullPending = false;
+                return new AbstractMap.SimpleImmutableEntry<K,V>(null, (V)nullValue);
+            }
+            if (depth < 0) {
+                throw new NoSuchElementException();
+            }
+            Object[] a = arrays[depth];
+            int i = positions[depth];
+            Map.Entry<K,V> ret = new AbstractMap.SimpleImmutableEntry<K,V>((K)a[i], (V)a[i + 1]);
+            positions[depth] += 2;
+            advance();
+            return ret;
+        }
+
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final Object writeReplace() {
+        // keys and values alternating
+        Object[] elements = new Object[2 * size];
+        int i = 0;
+        for (Map.Entry<K,V> e: entrySet()) {
+            elements[i++] = e.getKey();
+            elements[i++] = e.getValue();
+        }
+        return new SerializedForm(elements);
+    }
+
+    private final void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Serialized through SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private final Object[] elements;
+
+        SerializedForm(Object[] elements) {
+            this.elements = elements;
+        }
+
+        private final Object readResolve() throws ObjectStreamException {
+            Transient<Object,Object> ret = PersistentMap.empty().asTransient();
+            for (int i = 0; i < elements.length; i += 2) {
+                ret.put(elements[i], elements[i + 1]);
+            }
+            return ret.persistent();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fi.solita.utils.functional;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Immutable hash set whose versions share structure, backed by a {@link PersistentMap}.
+ */
+public final class PersistentSet<T> extends AbstractSet<T> implements Serializable {
+    private static final PersistentSet<?> EMPTY = new PersistentSet<Object>(PersistentMap.<Object,Boolean>empty());
+
+    private final PersistentMap<T,Boolean> map;
+
+    private PersistentSet(PersistentMap<T,Boolean> map) {
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <T> PersistentSet<T> empty() {
+        return (PersistentSet<T>)EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <T> PersistentSet<T> of(Iterable<? extends T> elements) {
+        if (elements instanceof PersistentSet) {
+            return (PersistentSet<T>)elements;
+        }
+        Transient<T> ret = PersistentSet.<T>empty().asTransient();
+        for (T t: elements) {
+            ret.add(t);
+        }
+        return ret.persistent();
+    }
+
+    @Override
+    public final int size() {
+        return map.size();
+    }
+
+    @Override
+    public final boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        final Iterator<Map.Entry<T,Boolean>> it = map.entrySet().iterator();
+        return new Iterator<T>() {
+            public final boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public final T next() {
+                return it.next().getKey();
+            }
+
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return a set containing also <i>t</i>, sharing the rest with this one.
+     */
+    public final PersistentSet<T> with(T t) {
+        PersistentMap<T,Boolean> ret = map.with(t, Boolean.TRUE);
+        return ret == map ? this : new PersistentSet<T>(ret);
+    }
+
+    /**
+     * @return a set without <i>t</i>, sharing the rest with this one.
+     */
+    public final PersistentSet<T> without(T t) {
+        PersistentMap<T,Boolean> ret = map.without(t);
+        return ret == map ? this : new PersistentSet<T>(ret);
+    }
+
+    public final Transient<T> asTransient() {
+        return new Transient<T>(map.asTransient());
+    }
+
+    /**
+     * Mutable version of a PersistentSet. Must not be used after <i>persistent</i>, or from many threads at once.
+     */
+    public static final class Transient<T> {
+        private final PersistentMap.Transient<T,Boolean> map;
+
+        private Transient(PersistentMap.Transient<T,Boolean> map) {
+            this.map = map;
+        }
+
+        public final int size() {
+            return map.size();
+        }
+
+        public final boolean contains(Object o) {
+            return map.get(o) != null;
+        }
+
+        public final Transient<T> add(T t) {
+            map.put(t, Boolean.TRUE);
+            return this;
+        }
+
+        public final Transient<T> remove(T t) {
+            map.remove(t);
+            return this;
+        }
+
+        public final PersistentSet<T> persistent() {
+            return new PersistentSet<T>(map.persistent());
+        }
+    }
+
+    private final Object writeReplace() {
+        return new SerializedForm(toArray());
+    }
+
+    private final void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Serialized through SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private final Object[] elements;
+
+        SerializedForm(Object[] elements) {
+            this.elements = elements;
+        }
+
+        private final Object readResolve() throws ObjectStreamException {
+            return PersistentSet.of(Arrays.asList(elements));
+        }
+    }
+}
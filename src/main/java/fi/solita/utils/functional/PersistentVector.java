@@ -0,0 +1,346 @@
+package fi.solita.utils.functional;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list whose versions share structure. Elements are in a 32-way trie with the last
+ * (up to) 32 kept in a separate tail, so appending is mostly a tail copy, and <i>with(index, t)</i>
+ * and <i>get</i> take O(log32 n). For many appends in a row, use <i>asTransient</i>.
+ */
+public final class PersistentVector<T> extends AbstractList<T> implements RandomAccess, Serializable {
+    private static final Node EMPTY_NODE = new Node(null, new Object[32]);
+    private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(0, 5, EMPTY_NODE, new Object[0]);
+
+    static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>)EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final <T> PersistentVector<T> of(Iterable<? extends T> elements) {
+        if (elements instanceof PersistentVector) {
+            return (PersistentVector<T>)elements;
+        }
+        Transient<T> ret = PersistentVector.<T>empty().asTransient();
+        for (T t: elements) {
+            ret.add(t);
+        }
+        return ret.persistent();
+    }
+
+    private static final int tailOffset(int size) {
+        return size < 32 ? 0 : ((size - 1) >>> 5) << 5;
+    }
+
+    private static final Object[] arrayFor(int index, int size, int shift, Node root, Object[] tail) {
+        if (index >= tailOffset(size)) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= 5) {
+            node = (Node)node.array[(index >>> level) & 31];
+        }
+        return node.array;
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T)arrayFor(index, size, shift, root, tail)[index & 31];
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int i = 0;
+            private Object[] chunk;
+
+            public final boolean hasNext() {
+                return i < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            public final T next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                if ((i & 31) == 0) {
+                    chunk = arrayFor(i, size, shift, root, tail);
+                }
+                return (T)chunk[i++ & 31];
+            }
+
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return a vector with <i>t</i> appended, sharing the rest with this one.
+     */
+    public final PersistentVector<T> with(T t) {
+        if (size - tailOffset(size) < 32) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = t;
+            return new PersistentVector<T>(size + 1, shift, root, newTail);
+        }
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((size >>> 5) > (1 << shift)) {
+            newRoot = new Node(null, new Object[32]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += 5;
+        } else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new PersistentVector<T>(size + 1, newShift, newRoot, new Object[] {t});
+    }
+
+    /**
+     * @return a vector with <i>t</i> at <i>index</i>, sharing the rest with this one.
+     *         <i>index</i> may be <i>size</i>, to append.
+     */
+    public final PersistentVector<T> with(int index, T t) {
+        if (index == size) {
+            return with(t);
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index >= tailOffset(size)) {
+            Object[] newTail = tail.clone();
+            newTail[index & 31] = t;
+            return new PersistentVector<T>(size, shift, root, newTail);
+        }
+        return new PersistentVector<T>(size, shift, assoc(null, shift, root, index, t), tail);
+    }
+
+    /**
+     * @return a vector without the last element, sharing the rest with this one.
+     */
+    public final PersistentVector<T> withoutLast() {
+        if (size == 0) {
+            throw new IllegalStateException("Empty vector");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        if (size - tailOffset(size) > 1) {
+            return new PersistentVector<T>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        Object[] newTail = arrayFor(size - 2, size, shift, root, tail);
+        Node newRoot = popTail(shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > 5 && newRoot.array[1] == null) {
+            newRoot = (Node)newRoot.array[0];
+            newShift -= 5;
+        }
+        return new PersistentVector<T>(size - 1, newShift, newRoot, newTail);
+    }
+
+    private final Node popTail(int level, Node node) {
+        int i = ((size - 2) >>> level) & 31;
+        if (level > 5) {
+            Node child = popTail(level - 5, (Node)node.array[i]);
+            if (child == null && i == 0) {
+                return null;
+            }
+            Node ret = new Node(null, node.array.clone());
+            ret.array[i] = child;
+            return ret;
+        }
+        if (i == 0) {
+            return null;
+        }
+        Node ret = new Node(null, node.array.clone());
+        ret.array[i] = null;
+        return ret;
+    }
+
+    public final Transient<T> asTransient() {
+        return new Transient<T>(size, shift, root, tail);
+    }
+
+    private static final Node editable(Object edit, Node node) {
+        return edit != null && node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    private static final Node newPath(Object edit, int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Node ret = new Node(edit, new Object[32]);
+        ret.array[0] = newPath(edit, level - 5, node);
+        return ret;
+    }
+
+    /**
+     * @param size before adding the elements of <i>tailNode</i>.
+     */
+    private static final Node pushTail(Object edit, int size, int level, Node parent, Node tailNode) {
+        int i = ((size - 1) >>> level) & 31;
+        Node ret = editable(edit, parent);
+        if (level == 5) {
+            ret.array[i] = tailNode;
+        } else {
+            Node child = (Node)parent.array[i];
+            ret.array[i] = child == null ? newPath(edit, level - 5, tailNode) : pushTail(edit, size, level - 5, child, tailNode);
+        }
+        return ret;
+    }
+
+    private static final Node assoc(Object edit, int level, Node node, int index, Object t) {
+        Node ret = editable(edit, node);
+        if (level == 0) {
+            ret.array[index & 31] = t;
+        } else {
+            int i = (index >>> level) & 31;
+            ret.array[i] = assoc(edit, level - 5, (Node)node.array[i], index, t);
+        }
+        return ret;
+    }
+
+    /**
+     * Mutable version of a PersistentVector, which changes the nodes it has created itself in place.
+     * Must not be used after <i>persistent</i>, or from many threads at once.
+     */
+    public static final class Transient<T> {
+        private Object edit = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Transient(int size, int shift, Node root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = new Node(edit, root.array.clone());
+            this.tail = Arrays.copyOf(tail, 32);
+        }
+
+        private final void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+
+        public final int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public final T get(int index) {
+            ensureEditable();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T)arrayFor(index, size, shift, root, tail)[index & 31];
+        }
+
+        public final Transient<T> add(T t) {
+            ensureEditable();
+            if (size - tailOffset(size) < 32) {
+                tail[size & 31] = t;
+                size++;
+                return this;
+            }
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[32];
+            tail[0] = t;
+            if ((size >>> 5) > (1 << shift)) {
+                Node newRoot = new Node(edit, new Object[32]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += 5;
+            } else {
+                root = pushTail(edit, size, shift, root, tailNode);
+            }
+            size++;
+            return this;
+        }
+
+        public final Transient<T> set(int index, T t) {
+            ensureEditable();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (index >= tailOffset(size)) {
+                tail[index & 31] = t;
+            } else {
+                root = assoc(edit, shift, root, index, t);
+            }
+            return this;
+        }
+
+        public final PersistentVector<T> persistent() {
+            ensureEditable();
+            edit = null;
+            return new PersistentVector<T>(size, shift, root, Arrays.copyOf(tail, size - tailOffset(size)));
+        }
+    }
+
+    private final Object writeReplace() {
+        return new SerializedForm(toArray());
+    }
+
+    private final void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Serialized through SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private final Object[] elements;
+
+        SerializedForm(Object[] elements) {
+            this.elements = elements;
+        }
+
+        private final Object readResolve() throws ObjectStreamException {
+            return PersistentVector.of(Arrays.asList(elements));
+        }
+    }
+}
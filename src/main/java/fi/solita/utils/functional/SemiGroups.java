@@ -1,8 +1,6 @@
 package fi.solita.utils.functional;
 
-import static fi.solita.utils.functional.Collections.newMapOfSize;
 import static fi.solita.utils.functional.Collections.newSet;
-import static fi.solita.utils.functional.Functional.concat;
 import static fi.solita.utils.functional.Functional.filter;
 
 import java.util.Comparator;
@@ -33,46 +31,70 @@ public abstract class SemiGroups {
       }
   }
 
-  public static class LongProduct extends Function2<Long,Long,Long> implements SemiGroup<Long> {
+  public static class LongProduct extends Function2<Long,Long,Long> implements LongSemiGroup {
       @Override
       public final Long apply(Long first, Long second) {
           return first * second;
       }
+
+      public final long applyLong(long first, long second) {
+          return first * second;
+      }
   }
 
-  public static class LongSum extends Function2<Long,Long,Long> implements SemiGroup<Long> {
+  public static class LongSum extends Function2<Long,Long,Long> implements LongSemiGroup {
       @Override
       public final Long apply(Long first, Long second) {
           return first + second;
       }
+
+      public final long applyLong(long first, long second) {
+          return first + second;
+      }
   }
 
-  public static class IntProduct extends Function2<Integer,Integer,Integer> implements SemiGroup<Integer> {
+  public static class IntProduct extends Function2<Integer,Integer,Integer> implements IntSemiGroup {
       @Override
       public final Integer apply(Integer first, Integer second) {
           return first * second;
       }
+
+      public final int applyInt(int first, int second) {
+          return first * second;
+      }
   }
 
-  public static class IntSum extends Function2<Integer,Integer,Integer> implements SemiGroup<Integer> {
+  public static class IntSum extends Function2<Integer,Integer,Integer> implements IntSemiGroup {
       @Override
       public final Integer apply(Integer first, Integer second) {
           return first + second;
       }
+
+      public final int applyInt(int first, int second) {
+          return first + second;
+      }
   }
   
-  public static class DoubleProduct extends Function2<Double,Double,Double> implements SemiGroup<Double> {
+  public static class DoubleProduct extends Function2<Double,Double,Double> implements DoubleSemiGroup {
       @Override
       public final Double apply(Double first, Double second) {
           return first * second;
       }
+
+      public final double applyDouble(double first, double second) {
+          return first * second;
+      }
   }
   
-  public static class DoubleSum extends Function2<Double,Double,Double> implements SemiGroup<Double> {
+  public static class DoubleSum extends Function2<Double,Double,Double> implements DoubleSemiGroup {
       @Override
       public final Double apply(Double first, Double second) {
           return first + second;
       }
+
+      public final double applyDouble(double first, double second) {
+          return first + second;
+      }
   }
   
   public static final class Max<T extends Comparable<T>> extends Function2<T,T,T> implements SemiGroup<T> {
@@ -105,7 +127,14 @@ public abstract class SemiGroups {
           if (second instanceof Monoids.SetIntersection.AllContainingSet) {
               return first;
           }
-          return newSet(concat(first, second));
+          // add the smaller one into the larger one, sharing structure if it's already persistent
+          Set<T> larger = first.size() >= second.size() ? first : second;
+          Set<T> smaller = larger == first ? second : first;
+          PersistentSet.Transient<T> ret = PersistentSet.of(larger).asTransient();
+          for (T t: smaller) {
+              ret.add(t);
+          }
+          return ret.persistent();
       }
   }
   
@@ -151,17 +180,16 @@ public abstract class SemiGroups {
  
       @Override
       public final Map<K, V> apply(Map<K, V> t1, Map<K, V> t2) {
-          Map<K, V> ret = newMapOfSize(t1.size() + t2.size());
-          ret.putAll(t1);
+          PersistentMap.Transient<K, V> ret = PersistentMap.<K,V>of(t1.entrySet()).asTransient();
           for (Map.Entry<K, V> entry: t2.entrySet()) {
           	  V valOrNull = ret.get(entry.getKey());
               if (valOrNull != null) {
-                  ret.put(entry.getKey(), sg.apply(Tuple.of(valOrNull, entry.getValue())));
+                  ret.put(entry.getKey(), Function2.applyUntuppled(sg, valOrNull, entry.getValue()));
               } else {
                   ret.put(entry.getKey(), entry.getValue());
               }
           }
-          return ret;
+          return ret.persistent();
       }
   }
   
@@ -176,7 +204,7 @@ public abstract class SemiGroups {
 
     @Override
     public final Tuple2<T1, T2> apply(Tuple2<T1, T2> t1, Tuple2<T1, T2> t2) {
-        return Tuple.of(s1.apply(Tuple.of(t1._1, t2._1)), s2.apply(Tuple.of(t1._2, t2._2)));
+        return Tuple.of(Function2.applyUntuppled(s1, t1._1, t2._1), Function2.applyUntuppled(s2, t1._2, t2._2));
     }
   }
   
@@ -193,7 +221,7 @@ public abstract class SemiGroups {
 
       @Override
       public final Tuple3<T1, T2, T3> apply(Tuple3<T1, T2, T3> t1, Tuple3<T1, T2, T3> t2) {
-          return Tuple.of(s1.apply(Tuple.of(t1._1, t2._1)), s2.apply(Tuple.of(t1._2, t2._2)), s3.apply(Tuple.of(t1._3, t2._3)));
+          return Tuple.of(Function2.applyUntuppled(s1, t1._1, t2._1), Function2.applyUntuppled(s2, t1._2, t2._2), Function2.applyUntuppled(s3, t1._3, t2._3));
       }
     }
   
@@ -212,7 +240,7 @@ public abstract class SemiGroups {
 
       @Override
       public final Tuple4<T1, T2, T3, T4> apply(Tuple4<T1, T2, T3, T4> t1, Tuple4<T1, T2, T3, T4> t2) {
-          return Tuple.of(s1.apply(Tuple.of(t1._1, t2._1)), s2.apply(Tuple.of(t1._2, t2._2)), s3.apply(Tuple.of(t1._3, t2._3)), s4.apply(Tuple.of(t1._4, t2._4)));
+          return Tuple.of(Function2.applyUntuppled(s1, t1._1, t2._1), Function2.applyUntuppled(s2, t1._2, t2._2), Function2.applyUntuppled(s3, t1._3, t2._3), Function2.applyUntuppled(s4, t1._4, t2._4));
       }
     }
   
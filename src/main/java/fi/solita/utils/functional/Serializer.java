@@ -0,0 +1,14 @@
+package fi.solita.utils.functional;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads values one at a time, e.g. for spilling them to disk.
+ */
+public interface Serializer<T> {
+    void write(DataOutput out, T value) throws IOException;
+    
+    T read(DataInput in) throws IOException;
+}
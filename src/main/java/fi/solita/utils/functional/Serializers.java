@@ -0,0 +1,94 @@
+package fi.solita.utils.functional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+public abstract class Serializers {
+    private Serializers() {
+    }
+    
+    public static final Serializer<Long> longs = new Serializer<Long>() {
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+    
+    public static final Serializer<Integer> ints = new Serializer<Integer>() {
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+    
+    public static final Serializer<Double> doubles = new Serializer<Double>() {
+        public void write(DataOutput out, Double value) throws IOException {
+            out.writeDouble(value);
+        }
+
+        public Double read(DataInput in) throws IOException {
+            return in.readDouble();
+        }
+    };
+    
+    /**
+     * Unlike <code>DataOutput.writeUTF</code>, not limited to 64k.
+     */
+    public static final Serializer<String> strings = new Serializer<String>() {
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    };
+    
+    private static final Serializer<Serializable> serializable = new Serializer<Serializable>() {
+        public void write(DataOutput out, Serializable value) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bytes);
+            oos.writeObject(value);
+            oos.close();
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+
+        public Serializable read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return (Serializable)ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e.getMessage());
+            } finally {
+                ois.close();
+            }
+        }
+    };
+    
+    /**
+     * Java serialization, one value at a time. Works for anything, but slowly and with a lot of overhead.
+     */
+    @SuppressWarnings("unchecked")
+    public static final <T extends Serializable> Serializer<T> serializable() {
+        return (Serializer<T>)(Object)serializable;
+    }
+}
@@ -13,12 +13,22 @@ public abstract class Transformer<SOURCE, TARGET> extends Function1<SOURCE, TARG
      */
     @Override
     public final <U> Transformer<SOURCE, U> andThen(final Apply<? super TARGET, ? extends U> next) {
-        final Transformer<SOURCE, TARGET> self = this;
-        return new Transformer<SOURCE, U>() {
-            @Override
-            public U transform(SOURCE source) {
-                return next.apply(self.transform(source));
-            }
-        };
+        return new Composed<SOURCE, U>(Composition.<SOURCE, U>of(this, next));
+    }
+    
+    /**
+     * Keeps the stages flat when composed further.
+     */
+    static final class Composed<SOURCE, TARGET> extends Transformer<SOURCE, TARGET> {
+        final Function1<SOURCE, TARGET> composition;
+
+        Composed(Function1<SOURCE, TARGET> composition) {
+            this.composition = composition;
+        }
+
+        @Override
+        public final TARGET transform(SOURCE source) {
+            return composition.apply(source);
+        }
     }
 }
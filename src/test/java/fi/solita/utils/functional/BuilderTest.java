@@ -2,6 +2,7 @@ package fi.solita.utils.functional;
 
 import static fi.solita.utils.functional.Option.None;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -27,4 +28,29 @@ public class BuilderTest {
             .with(Employee_.name, "Jane")
             .build();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void latestValueWins() {
+        Builder<Employee> named = Builder.of(Employee_.$Fields(), Employee_.$)
+            .with(Employee_.name, "John")
+            .without(Employee_.salary)
+            .with(Employee_.department, new Department("Sales"));
+        Builder<Employee> renamed = named.with(Employee_.name, "Jane")
+                                         .with(Employee_.salary, Option.Some(42))
+                                         .with(Employee_.department, null);
+        
+        Employee john = named.build();
+        assertEquals("John", john.name);
+        assertEquals(None(), john.salary);
+        assertEquals("Sales", john.department.name);
+        
+        Employee jane = renamed.build();
+        assertEquals("Jane", jane.name);
+        assertEquals(Option.Some(42), jane.salary);
+        assertNull(jane.department);
+        
+        Employee copy = Builder.of(Employee_.$Fields(), Employee_.$).init(john).with(Employee_.name, "Jim").build();
+        assertEquals("Jim", copy.name);
+        assertEquals("Sales", copy.department.name);
+    }
+}
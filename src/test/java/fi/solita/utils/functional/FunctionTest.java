@@ -4,6 +4,20 @@ import static fi.solita.utils.functional.Function._;
 import static fi.solita.utils.functional.Function.__;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 public class FunctionTest {
@@ -32,4 +46,283 @@ public class FunctionTest {
          Long res2 = ggg.apply("foo", 2).apply("bar", "baz", "quux");
          assertEquals(15l, res2.longValue());
     }
+
+    @Test
+    public void partialApplicationKeepsArgumentOrder() {
+        Function6<String, String, String, String, String, String, String> concat6 = new Function6<String, String, String, String, String, String, String>() {
+            @Override
+            public String apply(String t1, String t2, String t3, String t4, String t5, String t6) {
+                return t1 + t2 + t3 + t4 + t5 + t6;
+            }
+        };
+        Function2<String, String, String> partial = concat6.apply(_, "b", _, "d", "e", "f");
+        assertEquals("abcdef", partial.apply("a", "c"));
+        assertEquals("xbydef", partial.apply("x", "y"));
+
+        Function3<String, String, String, Function3<String, String, String, String>> split = concat6.apply(__, _, __, _, __, _);
+        Function3<String, String, String, String> second = split.apply("b", "d", "f");
+        assertEquals("abcdef", second.apply("a", "c", "e"));
+        assertEquals("1b2d3f", second.apply("1", "2", "3"));
+    }
+
+    private static final Function1<Integer, Integer> inc = new Function1<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer t) {
+            return t + 1;
+        }
+    };
+
+    @Test
+    public void compositionsStayFlat() {
+        Function1<Integer, Integer> f = Function.id();
+        Transformer<Object, Integer> t = Transformers.toString.andThen(new Function1<String, Integer>() {
+            @Override
+            public Integer apply(String s) {
+                return Integer.parseInt(s);
+            }
+        });
+        for (int i = 0; i < 10000; ++i) {
+            f = f.andThen(inc).andThen(Function.<Integer>id());
+            t = t.andThen(inc);
+        }
+        assertEquals((Integer)10000, f.apply(0));
+        assertEquals((Integer)10001, t.apply(1));
+        assertEquals(10000, ((Composition<?, ?>)f).stages.length);
+        assertSame(inc, Function.<Integer>id().andThen(inc));
+        assertEquals((Integer)3, inc.compose(inc).andThen(inc).apply(0));
+
+        Function0<Integer> zero = Function.of(0);
+        Function2<Integer, Integer, Integer> plus = new Function2<Integer, Integer, Integer>() {
+            @Override
+            public Integer apply(Integer t1, Integer t2) {
+                return t1 + t2;
+            }
+        };
+        for (int i = 0; i < 10000; ++i) {
+            zero = zero.andThen(inc);
+            plus = plus.andThen(inc);
+        }
+        assertEquals((Integer)10000, zero.apply());
+        assertEquals((Integer)10003, plus.apply(1, 2));
+
+        Apply<Integer, Integer> endo = Functional.reduce(new Monoids.Endo<Integer>(), Collections.<Apply<Integer, Integer>>newList(inc, inc, inc));
+        assertEquals((Integer)3, endo.apply(0));
+    }
+
+    private static final class Counting extends Function1<Integer, String> {
+        final AtomicInteger calls = new AtomicInteger();
+        @Override
+        public String apply(Integer t) {
+            calls.incrementAndGet();
+            return t == null || t == 0 ? null : t.toString();
+        }
+    }
+
+    @Test
+    public void memoizesFunction1() throws Exception {
+        Counting f = new Counting();
+        Memoized<Integer, String> m = Function.memoize(f);
+        assertEquals("1", m.apply(1));
+        assertEquals("1", m.apply(1));
+        assertNull(m.apply(0));
+        assertNull(m.apply(0));
+        assertNull(m.apply(null));
+        assertNull(m.apply(null));
+        assertEquals(3, f.calls.get());
+        assertEquals(3, m.stats().hits);
+        m.invalidate(1);
+        assertEquals("1", m.apply(1));
+        assertEquals(4, f.calls.get());
+
+        Counting g = new Counting();
+        Memoized<Integer, String> bounded = Function.memoize(2, g);
+        bounded.apply(1);
+        bounded.apply(2);
+        bounded.apply(1);
+        bounded.apply(3);
+        assertEquals(2, bounded.size());
+        assertEquals(1, bounded.stats().evictions);
+        bounded.apply(1);
+        assertEquals(3, g.calls.get());
+        bounded.apply(2);
+        assertEquals(4, g.calls.get());
+
+        Counting h = new Counting();
+        Memoized<Integer, String> expiring = Function.memoize(Memoized.UNBOUNDED, 1, 0, TimeUnit.NANOSECONDS, h);
+        expiring.apply(1);
+        expiring.apply(1);
+        assertEquals(2, h.calls.get());
+        // loading 2 sweeps away the expired 1
+        expiring.apply(2);
+        assertEquals(1, expiring.size());
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    public void memoizedIsSerializable() throws Exception {
+        Memoized<Integer, String> m = Function.memoize(2, new Counting());
+        m.apply(1);
+        Memoized<Integer, String> copy = serializeAndBack(m);
+        assertEquals(0, copy.size());
+        assertEquals("1", copy.apply(1));
+        copy.apply(2);
+        copy.apply(3);
+        assertEquals(2, copy.size());
+    }
+
+    private static final boolean allWaiting(List<Thread> threads, int count) {
+        if (threads.size() < count) {
+            return false;
+        }
+        for (Thread t: threads) {
+            if (t.getState() != Thread.State.WAITING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void memoizedLoadsEachKeyOnce() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Memoized<Integer, Integer> m = Function.memoize(new Function1<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer t) {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return t * 2;
+            }
+        });
+        final List<Thread> threads = new java.util.concurrent.CopyOnWriteArrayList<Thread>();
+        ExecutorService executor = Executors.newFixedThreadPool(4, new java.util.concurrent.ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread ret = new Thread(r);
+                threads.add(ret);
+                return ret;
+            }
+        });
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; ++i) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        return m.apply(21);
+                    }
+                }));
+            }
+            started.await();
+            // release the load only once every caller is blocked, either loading or waiting for the load
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!allWaiting(threads, 4) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(allWaiting(threads, 4));
+            release.countDown();
+            for (Future<Integer> result: results) {
+                assertEquals((Integer)42, result.get());
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void lazyComputesOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Lazy<String> nothing = Lazy.of(new Function0<String>() {
+            @Override
+            public String apply() {
+                calls.incrementAndGet();
+                return null;
+            }
+        });
+        assertFalse(nothing.isInitialized());
+        assertNull(nothing.apply());
+        assertNull(nothing.apply());
+        assertTrue(nothing.isInitialized());
+        assertEquals(1, calls.get());
+
+        final AtomicInteger failures = new AtomicInteger();
+        Function0<Integer> failsOnce = new Function0<Integer>() {
+            @Override
+            public Integer apply() {
+                if (failures.getAndIncrement() == 0) {
+                    throw new IllegalStateException();
+                }
+                return 42;
+            }
+        };
+        Lazy<Integer> retrying = Lazy.of(failsOnce);
+        try {
+            retrying.apply();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals((Integer)42, retrying.apply());
+
+        failures.set(0);
+        Lazy<Integer> caching = Lazy.cachingFailures(failsOnce);
+        for (int i = 0; i < 2; ++i) {
+            try {
+                caching.apply();
+                fail();
+            } catch (IllegalStateException e) {
+            }
+        }
+        assertEquals(1, failures.get());
+
+        final AtomicInteger evaluations = new AtomicInteger();
+        Iterable<Integer> xs = Collections.lazilyOnce(new Supplier<Iterable<Integer>>() {
+            public Iterable<Integer> apply() {
+                evaluations.incrementAndGet();
+                return Collections.newList(1, 2);
+            }
+        });
+        assertEquals(0, evaluations.get());
+        assertEquals(Collections.newList(1, 2), Collections.newList(xs));
+        assertEquals(Collections.newList(1, 2), Collections.newList(xs));
+        assertEquals(1, evaluations.get());
+    }
+
+    private static final class Answer extends Function0<Integer> {
+        @Override
+        public Integer apply() {
+            return 42;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final <T> T serializeAndBack(T t) throws Exception {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bao);
+        out.writeObject(t);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bao.toByteArray()));
+        try {
+            return (T)in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void lazyIsSerializable() throws Exception {
+        Function0<Integer> unevaluated = Function.memoize(new Answer());
+        assertEquals((Integer)42, serializeAndBack(unevaluated).apply());
+
+        Lazy<Integer> evaluated = Lazy.of(new Answer());
+        evaluated.apply();
+        Lazy<Integer> copy = serializeAndBack(evaluated);
+        assertTrue(copy.isInitialized());
+        assertEquals((Integer)42, copy.apply());
+    }
 }
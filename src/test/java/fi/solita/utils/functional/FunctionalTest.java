@@ -5,13 +5,21 @@ import static fi.solita.utils.functional.Collections.newSet;
 import static fi.solita.utils.functional.Functional.*;
 import static fi.solita.utils.functional.FunctionalC.group;
 import static fi.solita.utils.functional.FunctionalS.range;
+import static fi.solita.utils.functional.Option.None;
+import static fi.solita.utils.functional.Option.Some;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.not;
 import org.junit.Test;
@@ -151,8 +159,114 @@ public class FunctionalTest {
     @Test
     public void testDistinct() {
         assertEquals(newList(1,2,3,4), newList(distinct(newList(1,2,3,3,2,1,4))));
+        
+        Iterable<Integer> distinct = distinct(newList(1,2,3,3,2,1,4));
+        assertEquals(newList(distinct), newList(distinct));
+        Iterator<Integer> first = distinct.iterator();
+        Iterator<Integer> second = distinct.iterator();
+        assertEquals(Some(1), Some(first.next()));
+        assertEquals(Some(1), Some(second.next()));
+        
+        assertEquals(newList(1,2,3,1), newList(distinctSorted(newList(1,1,2,2,2,3,1))));
+        assertEquals(newList(0l,5l,-1l), newList(distinctBy(Function.<Long>id(), newList(0l,5l,0l,-1l,5l))));
+        assertEquals(newList("a","bb"), newList(distinctBy(length, newList("a","bb","c"))));
+        
+        Iterable<Long> approximately = distinctApproximately(1000, 0.01, Function.<Long>id(), map(Function.<Long>id(), newList(range(1l, 1000l))));
+        assertTrue(newList(approximately).size() > 950);
+        assertEquals(newList(approximately), newList(distinct(approximately)));
+    }
+    
+    @Test
+    public void testAggregateBy() {
+        List<String> xs = newList("a", "bb", "cc", "ddd", "e");
+        Map<Long,Long> counts = FunctionalM.aggregateBy(length, Function.<String,Long>constant(1l), Monoids.longSum, xs);
+        assertEquals(Collections.newMap(Pair.of(1l, 2l), Pair.of(2l, 2l), Pair.of(3l, 1l)), counts);
+        assertEquals(Collections.newMap(Pair.of(1l, 2), Pair.of(2l, 2), Pair.of(3l, 1)), FunctionalM.aggregateBy(length, Function.<String,Integer>constant(1), Monoids.intSum, xs));
+        assertEquals(Collections.newMap(Pair.of(1l, "ae"), Pair.of(2l, "bbcc"), Pair.of(3l, "ddd")), FunctionalM.aggregateBy(length, Function.<String>id(), Monoids.stringConcat, xs));
+        assertEquals(Collections.newMap(Pair.of(1l, 2.0), Pair.of(2l, 2.0), Pair.of(3l, 1.0)), FunctionalM.aggregateBy(length, Function.<String,Double>constant(1.0), Monoids.doubleSum, xs));
+    }
+    
+    @Test
+    public void testMemoize() {
+        final int[] evaluations = {0};
+        Iterable<Integer> xs = memoize(map(new Function1<Integer,Integer>() {
+            @Override
+            public Integer apply(Integer t) {
+                evaluations[0]++;
+                return t;
+            }
+        }, filter(Predicates.odd, range(1, 10))));
+        
+        Iterator<Integer> first = xs.iterator();
+        assertEquals((Integer)1, first.next());
+        assertFalse(isEmpty(xs));
+        assertEquals(1, evaluations[0]);
+        
+        assertEquals(newList(1, 3, 5, 7, 9), newList(xs));
+        assertEquals(5, size(xs));
+        assertEquals((Integer)3, first.next());
+        assertEquals(5, evaluations[0]);
+        assertEquals(Some(5l), Iterables.resolveSize.apply(xs));
+    }
+    
+    @Test
+    public void hasNextDoesNotApplyTrailingMaps() {
+        final int[] evaluations = {0};
+        Function1<Integer,Integer> counting = new Function1<Integer,Integer>() {
+            @Override
+            public Integer apply(Integer t) {
+                evaluations[0]++;
+                return t * 10;
+            }
+        };
+        LinkedList<Integer> xs = new LinkedList<Integer>(newList(1, 2, 3, 4));
+        
+        Iterator<Integer> mapped = map(counting, xs).iterator();
+        assertTrue(mapped.hasNext());
+        assertTrue(mapped.hasNext());
+        assertEquals(0, evaluations[0]);
+        assertEquals((Integer)10, mapped.next());
+        assertEquals(1, evaluations[0]);
+        
+        evaluations[0] = 0;
+        Iterator<Integer> fused = take(2, map(counting, filter(Predicates.even, xs))).iterator();
+        assertTrue(fused.hasNext());
+        assertEquals(0, evaluations[0]);
+        assertEquals((Integer)20, fused.next());
+        assertEquals((Integer)40, fused.next());
+        assertFalse(fused.hasNext());
+        assertEquals(2, evaluations[0]);
+    }
+    
+    @Test
+    public void memoizeFromManyThreads() throws Exception {
+        final Iterable<Integer> xs = memoize(filter(Predicates.odd, range(1, 10000)));
+        final List<Integer> expected = newList(filter(Predicates.odd, range(1, 10000)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Integer>>> results = newList();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(new Callable<List<Integer>>() {
+                    public List<Integer> call() {
+                        return newList(xs);
+                    }
+                }));
+            }
+            for (Future<List<Integer>> result: results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
     }
     
+    private static final Function1<String,Long> length = new Function1<String,Long>() {
+        @Override
+        public Long apply(String t) {
+            return (long)t.length();
+        }
+    };
+    
     @Test
     public void traversalFusionByComposingMonoids() {
         // lista, joka varmistaa että sen voi iteroida vain kerran
@@ -255,7 +369,77 @@ public class FunctionalTest {
         assertEquals(newList(1,2,3), newList(pair.left));
         assertEquals(newList(5), newList(pair.right));
     }
-    
+
+    @Test
+    public void testFoldWithAndWithoutFunction2() {
+        Apply<Map.Entry<? extends Long,? extends Integer>, Long> tupled = new Apply<Map.Entry<? extends Long,? extends Integer>, Long>() {
+            public Long apply(Map.Entry<? extends Long, ? extends Integer> t) {
+                return t.getKey() + t.getValue();
+            }
+        };
+        Function2<Long,Integer,Long> untupled = new Function2<Long,Integer,Long>() {
+            @Override
+            public Long apply(Long t1, Integer t2) {
+                return t1 + t2;
+            }
+        };
+        assertEquals((Long)6l, fold(0l, tupled, newList(1, 2, 3)));
+        assertEquals((Long)6l, fold(0l, untupled, newList(1, 2, 3)));
+
+        Monoid<Integer> max = Monoids.of(SemiGroups.<Integer>max(), Function.of(Integer.MIN_VALUE));
+        assertEquals((Integer)3, reduce(max, newList(1, 3, 2)));
+        assertEquals((Integer)Integer.MIN_VALUE, reduce(max, Collections.<Integer>emptyList()));
+        assertEquals((Integer)0, reduce(Monoids.intSum, Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void testPrimitiveReductions() {
+        assertEquals(6l, sum(1, 2, 3));
+        assertEquals(6l, sum(1l, 2l, 3l));
+        assertEquals(6.0, sum(1.0, 2.0, 3.0), 0.001);
+        assertEquals(24l, product(2, 3, 4));
+        assertEquals(1l, product(new long[0]));
+        assertEquals(Integer.MAX_VALUE * 2l, sum(Integer.MAX_VALUE, Integer.MAX_VALUE));
+
+        assertEquals(5050l, sum(range(1l, 100l)));
+        assertEquals((Integer)5050, reduce(Monoids.intSum, range(1, 100)));
+        assertEquals((Long)(long)Integer.MAX_VALUE, reduce(Monoids.longSum, range((long)Integer.MAX_VALUE, (long)Integer.MAX_VALUE)));
+        assertEquals(10, reduce(Monoids.intSum, new int[] {1, 2, 3, 4}));
+        Iterable<Integer> backwards = Functional.range(Enumerables.ints, Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 3);
+        assertEquals(reduce(Monoids.intSum, newList(backwards)), reduce(Monoids.intSum, backwards));
+        Iterable<Long> backwardLongs = Functional.range(Enumerables.longs, Long.MAX_VALUE - 1, Long.MAX_VALUE - 3);
+        assertEquals(reduce(Monoids.longSum, newList(backwardLongs)), reduce(Monoids.longSum, backwardLongs));
+        assertEquals(3l, reduce(Monoids.of(SemiGroups.<Long>max(), Function.of(0l)), new long[] {1, 3, 2}));
+
+        assertEquals(Some(-2), min(new int[] {3, -2, 5}));
+        assertEquals(Some(5l), max(new long[] {3, -2, 5}));
+        assertEquals(None(), max(new double[0]));
+        assertEquals(Some(2.0), average(new int[] {1, 2, 3}));
+        assertEquals(Some((double)Long.MAX_VALUE), average(new long[] {Long.MAX_VALUE, Long.MAX_VALUE}));
+        assertEquals(None(), average(new double[0]));
+    }
+
+    @Test
+    public void testFusedPipeline() {
+        Iterable<Integer> xs = range(1, 20);
+        Iterable<String> fused = take(4, map(toString, filter(Predicates.odd, dropWhile(Predicates.lessThan(5), takeWhile(Predicates.lessThan(15), xs)))));
+
+        assertEquals(newList("5", "7", "9", "11"), newList(fused));
+        assertEquals("iterable can be iterated again", newList("5", "7", "9", "11"), newList(fused));
+        assertEquals(newList(5, 7), newList(take(2, filter(Predicates.odd, dropWhile(Predicates.lessThan(5), xs)))));
+        assertTrue(newList(take(0, map(toString, xs))).isEmpty());
+
+        Iterator<Integer> it = take(1, newList(1, 2)).iterator();
+        assertEquals((Integer)1, it.next());
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail();
+        } catch (NoSuchElementException e) {
+            // ok
+        }
+    }
+
     @Test
     public void testRangify1() {
         assertEquals(newList(newList(1,3), newList(5)), newList(rangify(Enumerables.ints, newList(1,2,3,5))));
@@ -0,0 +1,420 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Collections.newList;
+import static fi.solita.utils.functional.Collections.newSet;
+import static fi.solita.utils.functional.Functional.concat;
+import static fi.solita.utils.functional.Functional.cons;
+import static fi.solita.utils.functional.Functional.drop;
+import static fi.solita.utils.functional.Functional.filter;
+import static fi.solita.utils.functional.Functional.flatten;
+import static fi.solita.utils.functional.Functional.grouped;
+import static fi.solita.utils.functional.Functional.head;
+import static fi.solita.utils.functional.Functional.map;
+import static fi.solita.utils.functional.Functional.nth;
+import static fi.solita.utils.functional.Functional.repeat;
+import static fi.solita.utils.functional.Functional.reverse;
+import static fi.solita.utils.functional.Functional.size;
+import static fi.solita.utils.functional.Functional.sliding;
+import static fi.solita.utils.functional.Functional.take;
+import static fi.solita.utils.functional.Functional.tumbling;
+import static fi.solita.utils.functional.Functional.tumblingStartingWith;
+import static fi.solita.utils.functional.Functional.zip;
+import static fi.solita.utils.functional.Functional.zipWithIndex;
+import static fi.solita.utils.functional.FunctionalS.intRange;
+import static fi.solita.utils.functional.FunctionalS.longRange;
+import static fi.solita.utils.functional.FunctionalS.range;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.junit.Test;
+
+public class IterablesTest {
+
+    private static final <T> void assertSplitsTo(Iterable<T> xs) {
+        List<T> expected = newList(xs);
+        Option<Pair<Iterable<T>,Iterable<T>>> halves = Iterables.split(xs);
+        assertTrue(halves.isDefined());
+        assertFalse(newList(halves.get().left).isEmpty());
+        assertFalse(newList(halves.get().right).isEmpty());
+        assertEquals(expected, newList(concat(halves.get().left, halves.get().right)));
+        for (int n = 1; n < expected.size(); ++n) {
+            for (Pair<Iterable<T>,Iterable<T>> p: Iterables.splitAt(n, xs)) {
+                assertEquals(expected.subList(0, n), newList(p.left));
+                assertEquals(expected.subList(n, expected.size()), newList(p.right));
+            }
+        }
+    }
+
+    @Test
+    public void splitsSources() {
+        assertSplitsTo(newList(1, 2, 3));
+        assertSplitsTo(range(1, 7));
+        assertSplitsTo(range(1l, 7l));
+        assertSplitsTo(repeat("a", 5));
+        assertSplitsTo(concat(newList(1, 2), range(3, 5), newList(6)));
+    }
+
+    @Test
+    public void splitsElementwisePipelines() {
+        assertSplitsTo(map(Transformers.toString, range(1, 10)));
+        assertSplitsTo(filter(Predicates.even, map(Function.<Integer>id(), range(1, 10))));
+        assertSplitsTo(zip(range(1, 10), map(Transformers.toString, newList(1, 2, 3, 4, 5))));
+        assertEquals(Option.Some(4l), Iterables.resolveSize.apply(Iterables.split(map(Transformers.toString, range(1, 8))).get().left));
+    }
+
+    @Test
+    public void doesNotSplitWhatCannotBeSplit() {
+        assertFalse(Iterables.split(take(5, range(1, 10))).isDefined());
+        assertFalse(Iterables.split(range(1)).isDefined());
+        assertFalse(Iterables.split(newSet(1, 2, 3)).isDefined());
+        assertFalse(Iterables.split(newList(1)).isDefined());
+        assertFalse(Iterables.splitAt(3, filter(Predicates.even, range(1, 10))).isDefined());
+        assertFalse(Iterables.split(flatten(map(Function.<Iterable<Integer>>id(), newList(newSet(1), newSet(2))))).isDefined());
+    }
+
+    @Test
+    public void chunks() {
+        assertEquals(4, Iterables.chunks(range(1, 100), 25, 8).size());
+        assertEquals(8, Iterables.chunks(filter(Predicates.even, range(1, 100)), 1, 8).size());
+        assertEquals(1, Iterables.chunks(range(1), 1, 8).size());
+    }
+
+    @Test
+    public void windows() {
+        assertEquals(newList(newList(1, 2), newList(3, 4), newList(5)), newList(grouped(2, range(1, 5))));
+        assertEquals(newList(newList(1, 2, 3), newList(3, 4, 5)), newList(sliding(3, 2, range(1, 5))));
+        assertEquals(newList(newList(1, 2, 3), newList(3, 4)), newList(sliding(3, 2, range(1, 4))));
+        assertEquals(newList(newList(1, 2), newList(6, 7)), newList(sliding(2, 5, range(1, 10))));
+        for (Pair<Integer,Integer> sizeAndStep: newList(Pair.of(2, 2), Pair.of(3, 2), Pair.of(2, 5), Pair.of(1, 3), Pair.of(7, 1))) {
+            for (int n: range(0, 12)) {
+                Iterable<List<Integer>> windows = sliding(sizeAndStep.left, sizeAndStep.right, newList(range(1, n)).subList(0, n));
+                assertEquals(Option.Some((long)newList(windows).size()), Iterables.resolveSize.apply(windows));
+            }
+        }
+        
+        // lazy, so works on infinite input
+        assertEquals(newList(1000, 1001), head(take(1, sliding(2, 1, Functional.drop(999, range(1))))));
+        assertEquals(newList(newList(1, 2), newList(2, 3)), newList(take(2, sliding(2, 1, range(1)))));
+        
+        assertEquals(newList(newList("a", "b"), newList("cc"), newList("d")), newList(tumbling(length, newList("a", "b", "cc", "d"))));
+        assertEquals(newList(newList(1), newList(2, 3), newList(4, 5)), newList(tumblingStartingWith(Predicates.even, range(1, 5))));
+        assertEquals(3, size(tumbling(length, true, newList("a", "b", "cc", "d"))));
+    }
+    
+    private static final Function1<String,Integer> length = new Function1<String,Integer>() {
+        @Override
+        public Integer apply(String t) {
+            return t.length();
+        }
+    };
+
+    @Test
+    public void concatenationsOfListsAreIndexed() {
+        Iterable<Integer> xs = Collections.emptyList();
+        List<Integer> expected = newList();
+        for (int i: range(1, 3000)) {
+            xs = i % 3 == 0 ? cons(-i, xs) : concat(xs, newList(i, i));
+            if (i % 3 == 0) {
+                expected.add(0, -i);
+            } else {
+                expected.add(i);
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, newList(xs));
+        assertEquals(Option.Some((long)expected.size()), Iterables.resolveSize.apply(xs));
+        for (int i: newList(0, 1, 999, 1000, expected.size() - 1)) {
+            assertEquals(Option.Some(expected.get(i)), nth(i, xs));
+        }
+        assertEquals(Option.<Integer>None(), nth(expected.size(), xs));
+        assertEquals(expected.subList(0, 1234), newList(take(1234, xs)));
+        assertEquals(expected.subList(1234, expected.size()), newList(drop(1234, xs)));
+        // parts of a fixed size are cut right away
+        Iterable<Integer> fixed = concat(Collections.it(new int[] {1, 2}), range(3, 10));
+        assertTrue(take(3, fixed) instanceof Iterables.ConcatenatingIterable);
+        assertEquals(newList(1, 2, 3), newList(take(3, fixed)));
+        assertEquals(newList(9, 10), newList(drop(8, fixed)));
+        
+        assertEquals(Option.Some(6), nth(4, concat(newList(1, 2), filter(Predicates.<Integer>not(Predicates.equalTo(3)), range(3, 10)))));
+        
+        // sizes of parts that may change are not cached
+        List<Integer> growing = new ArrayList<Integer>(newList(1, 2, 3));
+        Iterable<Integer> both = concat(growing, newList(4, 5, 6));
+        assertEquals(6, size(both));
+        growing.add(7);
+        assertEquals(7, size(both));
+        assertEquals(7, newList(both).size());
+        
+        // parts that may change are cut only when iterated
+        List<Integer> x = new ArrayList<Integer>(newList(1, 2, 3));
+        List<Integer> y = new ArrayList<Integer>(newList(4, 5));
+        Iterable<Integer> taken = take(3, concat(x, y));
+        Iterable<Integer> dropped = drop(3, concat(x, y));
+        Iterable<Integer> takenTwo = take(2, concat(x, y));
+        x.add(99);
+        assertEquals(newList(1, 2, 3), newList(taken));
+        assertEquals(newList(99, 4, 5), newList(dropped));
+        x.add(0, 7);
+        assertEquals(newList(7, 1), newList(takenTwo));
+    }
+
+    private static final Function1<Integer,Integer> plus1 = new Function1<Integer,Integer>() {
+        @Override
+        public Integer apply(Integer t) {
+            return t + 1;
+        }
+    };
+
+    @Test
+    public void operationsOnListsGiveListViews() {
+        List<Integer> xs = new ArrayList<Integer>(newList(1, 2, 3, 4, 5));
+        assertEquals(newList("1", "2", "3", "4", "5"), map(Transformers.toString, xs));
+        assertEquals(newList(1, 2), take(2, xs));
+        assertEquals(newList(4, 5), drop(3, xs));
+        assertEquals(newList(5, 4, 3, 2, 1), reverse(xs));
+        assertEquals(newList(Tuple.of(1, "a"), Tuple.of(2, "b")), zip(xs, newList("a", "b")));
+        assertEquals(newList(Tuple.of(0, 1), Tuple.of(1, 2)), take(2, zipWithIndex(xs)));
+        assertTrue(reverse(drop(1, take(4, map(Function.<Integer>id(), xs)))) instanceof RandomAccess);
+        assertEquals(Collections.emptyList(), drop(10, xs));
+        assertEquals(Collections.emptyList(), take(-1, xs));
+        assertEquals(newList("2", "3", "4", "5", "6"), map(Transformers.toString, map(plus1, xs)));
+        assertEquals(newList("2", "4"), newList(filter(Predicates.not(Predicates.equalTo("3")), take(3, map(Transformers.toString, map(plus1, xs))))));
+        for (List<?> view: newList((List<?>)map(Transformers.toString, xs), (List<?>)zipWithIndex(xs))) {
+            try {
+                view.get(-1);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+        
+        // views, so changes to the source are seen
+        Iterable<Integer> reversed = reverse(xs);
+        xs.add(6);
+        assertEquals(Option.Some(6), nth(0, reversed));
+        assertEquals(Option.Some(Pair.of(5, 6)), Match.pair(drop(4, xs)).success);
+    }
+
+    @Test
+    public void primitiveIterables() {
+        IntIterable ints = intRange(1, 10);
+        assertEquals(55, ints.sum());
+        assertEquals(newList(2, 4, 6, 8, 10), newList(ints.filter(new IntIterable.IntPredicate() {
+            public boolean accept(int candidate) {
+                return candidate % 2 == 0;
+            }
+        })));
+        IntIterable squares = ints.map(new IntIterable.IntTransformer() {
+            public int transform(int source) {
+                return source * source;
+            }
+        });
+        assertEquals(Option.Some(10l), squares.size());
+        assertEquals(Option.Some(100), squares.max());
+        assertEquals(Option.Some(1), squares.min());
+        assertEquals(3628800, ints.reduce((IntMonoid)Monoids.intProduct));
+        assertEquals((Integer)55, Functional.reduce(Monoids.intSum, ints));
+        assertEquals(3, intRange(Integer.MAX_VALUE - 2, Integer.MAX_VALUE).toArray().length);
+        assertEquals(0, intRange(5, 4).toArray().length);
+        assertEquals(Option.<Integer>None(), intRange(5, 4).min());
+        
+        assertEquals(3, longRange(Long.MAX_VALUE - 2, Long.MAX_VALUE).toArray().length);
+        assertEquals(5050l, longRange(1l, 100l).sum());
+        assertEquals(Option.Some(Long.MAX_VALUE), longRange(Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertTrue(range(1, 3) instanceof IntIterable);
+        assertEquals(16, Iterables.grownCapacity(0));
+        assertEquals(5050l, (long)Functional.reduce(Monoids.longSum, range(1l, 100l)));
+        
+        assertEquals(6.5, Collections.it(new double[] {1.5, 2, 3}).sum(), 0.001);
+        assertEquals(Option.Some(3l), Collections.it(new long[] {1, 3, 2}).max());
+        assertEquals(newList(2, 3), newList(Iterables.splitAt(1, Collections.it(new int[] {1, 2, 3})).get().right));
+        assertSplitsTo(Collections.it(new int[] {1, 2, 3}));
+    }
+
+    @Test
+    public void arrayKernels() {
+        for (int n: range(1, 11)) {
+            int[] ints = intRange(1, n).toArray();
+            long[] longs = longRange(1l, (long)n).toArray();
+            assertEquals(n * (n + 1) / 2, FunctionalS.sum(ints));
+            assertEquals(n * (n + 1) / 2, Collections.it(longs).sum());
+            assertEquals(Option.Some(n), FunctionalS.max(ints));
+            assertEquals(Option.Some(1l), FunctionalS.min(longs));
+            assertEquals(Functional.reduce(Monoids.intProduct, newList(range(1, n))), (Integer)(int)FunctionalS.product(ints));
+            assertEquals(newList(filter(Predicates.even, range(1, n))), newList(Collections.it(FunctionalS.filter(new IntIterable.IntPredicate() {
+                public boolean accept(int candidate) {
+                    return candidate % 2 == 0;
+                }
+            }, ints))));
+        }
+        int[] many = intRange(0, 199).toArray();
+        assertEquals(newList(range(100, 199)), newList(Collections.it(FunctionalS.filter(new IntIterable.IntPredicate() {
+            public boolean accept(int candidate) {
+                return candidate >= 100;
+            }
+        }, many))));
+        assertEquals(14l, FunctionalS.dot(new long[] {1, 2, 3}, new long[] {1, 2, 3}));
+        assertEquals(3.5, FunctionalS.dot(new double[] {1, 0.5}, new double[] {3, 1}), 0.001);
+        assertEquals(Option.<Double>None(), FunctionalS.max(new double[0]));
+    }
+
+    @Test
+    public void primitiveLists() {
+        long[] ids = new long[] {3, 1, 2};
+        LongList xs = Collections.newLongList(ids);
+        ids[0] = 42;
+        assertEquals(newList(3l, 1l, 2l), xs);
+        assertEquals(newList(3l, 1l, 2l).hashCode(), xs.hashCode());
+        assertEquals(1l, xs.getLong(1));
+        assertEquals(6l, xs.longs().sum());
+        assertEquals(2, xs.indexOf(2l));
+        assertFalse(xs.contains(2));
+        assertTrue(xs == newList(xs));
+        assertTrue(newList(new int[] {1}) instanceof IntList);
+        
+        assertEquals(newList(1.5, Double.NaN), newList(new double[] {1.5, Double.NaN}));
+        assertEquals(newList('a', 'b'), newList(new char[] {'a', 'b'}));
+        assertEquals(newSet(1, 2), newSet(new int[] {1, 2, 1}));
+        assertEquals(newSet((short)1), newSet(new short[] {1, 1}));
+    }
+
+    @Test
+    public void primitiveSetsAndMaps() {
+        java.util.Random random = new java.util.Random(42);
+        LongMap<String> xs = Collections.newLongMap();
+        LongLongMap counts = Collections.newLongLongMap();
+        Map<Long,String> expected = new HashMap<Long,String>();
+        Map<Long,Long> expectedCounts = new HashMap<Long,Long>();
+        for (int i = 0; i < 20000; ++i) {
+            long key = random.nextInt(500) - 250;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), xs.remove(key));
+            } else {
+                assertEquals(expected.put(key, "" + i), xs.put(key, "" + i));
+            }
+            Long count = expectedCounts.get(key);
+            expectedCounts.put(key, count == null ? 1 : count + 1);
+            counts.addTo(key, 1);
+        }
+        assertEquals(expected, xs);
+        assertEquals(expectedCounts, counts);
+        assertEquals(expectedCounts.keySet(), newSet(counts.keySet()));
+        
+        IntIntMap ints = Collections.newIntIntMapOfSize(2);
+        ints.put(0, 5);
+        ints.put(7, 8);
+        assertEquals(8, ints.get(7, -1));
+        assertEquals(-1, ints.get(6, -1));
+        assertEquals((Integer)5, ints.remove((Object)0));
+        assertEquals(1, ints.size());
+        ints.addTo(1, Integer.MAX_VALUE);
+        assertEquals(Integer.MIN_VALUE, ints.addTo(1, 1));
+        assertEquals((Integer)Integer.MIN_VALUE, ints.get((Object)1));
+        
+        IntSet set = Collections.newIntSet();
+        for (int i: range(-100, 100)) {
+            set.add(i * 31);
+        }
+        for (int i: filter(Predicates.even, range(-100, 100))) {
+            assertTrue(set.remove(i * 31));
+        }
+        assertEquals(100, set.size());
+        assertEquals(newSet(filter(Predicates.not(Predicates.even), range(-100, 100))), newSet(map(new Function1<Integer,Integer>() {
+            @Override
+            public Integer apply(Integer t) {
+                return t / 31;
+            }
+        }, set)));
+        assertEquals(newSet(1l, 3l), newSet(new long[] {1, 3, 1}));
+        
+        assertEquals(newList(3, 1, 2), newList(Collections.it(new int[] {3, 1, 3, 2, 1}).distinct()));
+        assertEquals(newList(3l, 1l), newList(FunctionalS.subtract(new long[] {3, 2, 1, 0}, new long[] {0, 2})));
+        assertNull(FunctionalS.subtract(new int[] {1}, null));
+        assertEquals(newList("a", "c"), FunctionalM.groupByLong(new Function1<String,Long>() {
+            @Override
+            public Long apply(String t) {
+                return (long)t.length();
+            }
+        }, newList("a", "bb", "c")).get(1));
+    }
+
+    @Test
+    public void persistentCollections() throws Exception {
+        java.util.Random random = new java.util.Random(42);
+        PersistentMap<Object,Integer> map = Collections.newPersistentMap();
+        Map<Object,Integer> expected = new HashMap<Object,Integer>();
+        List<PersistentMap<Object,Integer>> versions = newList();
+        List<Map<Object,Integer>> expectedVersions = newList();
+        for (int i = 0; i < 20000; ++i) {
+            int k = random.nextInt(2000) - 1000;
+            // also keys with colliding hashes, and null
+            Object key = k == 0 ? null : k % 3 == 0 ? (Object)Long.valueOf((long)k << 32 | (k & 0xffffffffL)) : (Object)k;
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+            if (i % 1000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new HashMap<Object,Integer>(expected));
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expectedVersions, versions);
+
+        PersistentMap.Transient<Object,Integer> t = map.asTransient();
+        for (Object key: expected.keySet()) {
+            t.remove(key);
+        }
+        assertEquals(0, t.persistent().size());
+        assertEquals(expected, map);
+
+        PersistentSet<Integer> set = Collections.newPersistentSet(range(0, 99));
+        assertEquals(newSet(range(0, 100)), set.with(100));
+        assertEquals(newSet(range(0, 99)), set);
+        assertEquals(newSet(range(1, 99)), set.without(0));
+        assertEquals(newSet(range(0, 200)), new SemiGroups.SetUnion<Integer>().apply(set, newSet(range(50, 200))));
+
+        List<Integer> expectedList = newList(range(0, 69999));
+        PersistentVector<Integer> vector = Collections.newPersistentVector(expectedList);
+        assertEquals(expectedList, vector);
+        PersistentVector<Integer> changed = vector.with(12345, -1).with(70000, -2).with(-3);
+        assertEquals((Integer)12345, vector.get(12345));
+        assertEquals((Integer)(-1), changed.get(12345));
+        assertEquals(70002, changed.size());
+        assertEquals(expectedList, vector);
+        assertEquals(vector, FunctionTest.serializeAndBack(vector));
+        assertEquals(map, FunctionTest.serializeAndBack(map));
+        assertEquals(set, FunctionTest.serializeAndBack(set));
+        Map<Object,Integer> withExtra = FunctionTest.serializeAndBack(FunctionalM.with((Object)"extra", -1, new HashMap<Object,Integer>(expected)));
+        assertEquals((Integer)(-1), withExtra.get("extra"));
+        assertEquals(expected.size() + 1, withExtra.size());
+
+        List<Integer> appended = newList();
+        PersistentVector<Integer> v = Collections.newPersistentVector();
+        for (int i = 0; i < 40000; ++i) {
+            appended.add(i);
+            v = v.with(i);
+        }
+        assertEquals(appended, v);
+        while (!v.isEmpty()) {
+            appended.remove(appended.size() - 1);
+            v = v.withoutLast();
+            if (v.size() % 997 == 0) {
+                assertEquals(appended, v);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package fi.solita.utils.functional;
+
+import static fi.solita.utils.functional.Collections.newList;
+import static fi.solita.utils.functional.Collections.newSet;
+import static fi.solita.utils.functional.Functional.concat;
+import static fi.solita.utils.functional.Functional.filter;
+import static fi.solita.utils.functional.Functional.map;
+import static fi.solita.utils.functional.Functional.take;
+import static fi.solita.utils.functional.FunctionalS.range;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelTest {
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private static final Parallel parallel = new Parallel(executor, 3, 2);
+
+    @AfterClass
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void reducesInOrder() {
+        List<String> xs = newList(map(Transformers.toString, range(1, 100)));
+        assertEquals(Functional.reduce(Monoids.stringConcat, xs), parallel.reduce(Monoids.stringConcat, xs));
+        assertEquals(Functional.reduce(Monoids.stringConcat, xs), parallel.reduce(Monoids.stringConcat, xs.toArray(new String[0])));
+    }
+
+    @Test
+    public void splitsRangesAndConcatenations() {
+        assertEquals((Long)5050l, parallel.reduce(Monoids.longSum, range(1l, 100l)));
+        assertEquals((Integer)Integer.MAX_VALUE, parallel.reduce(Monoids.of(SemiGroups.<Integer>max(), Function.of(0)), range(Integer.MAX_VALUE - 10, Integer.MAX_VALUE)));
+        assertEquals((Integer)(5050 + 6), parallel.reduce(Monoids.intSum, concat(range(1, 100), concat(newList(1, 2), newSet(3)))));
+        assertEquals((Integer)2550, parallel.reduce(Monoids.intSum, filter(Predicates.even, map(Function.<Integer>id(), range(1, 100)))));
+    }
+
+    @Test
+    public void reducesPrimitiveArrays() {
+        long[] longs = new long[1001];
+        for (int i = 0; i < longs.length; ++i) {
+            longs[i] = i;
+        }
+        assertEquals(500500l, parallel.reduce(Monoids.longSum, longs));
+        assertEquals(15, parallel.reduce(Monoids.intSum, new int[] {1, 2, 3, 4, 5}));
+        assertEquals(6.0, parallel.reduce(Monoids.doubleProduct, new double[] {1.0, 2.0, 3.0}), 0.001);
+    }
+
+    @Test
+    public void rejectsNullPrimitiveArrays() {
+        assertEquals(null, parallel.reduce(Monoids.intSum, (Integer[])null));
+        for (Runnable r: newList(new Runnable() {
+            public void run() {
+                parallel.reduce(Monoids.intSum, (int[])null);
+            }
+        }, new Runnable() {
+            public void run() {
+                parallel.reduce(Monoids.longSum, (long[])null);
+            }
+        }, new Runnable() {
+            public void run() {
+                parallel.reduce(Monoids.doubleSum, (double[])null);
+            }
+        })) {
+            try {
+                r.run();
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void fallsBackToSequential() {
+        Set<Integer> union = parallel.reduce(Monoids.<Integer>setUnion(), newList(newSet(1), newSet(2), newSet(1, 3)));
+        assertEquals(newSet(1, 2, 3), union);
+        assertEquals((Integer)0, parallel.reduce(Monoids.intSum, Collections.<Integer>emptyList()));
+        assertEquals((Integer)6, parallel.reduce(Monoids.intSum, take(3, range(1))));
+    }
+
+    private static final Function1<Integer,Integer> mod7 = new Function1<Integer,Integer>() {
+        @Override
+        public Integer apply(Integer t) {
+            return t % 7;
+        }
+    };
+
+    @Test
+    public void groupsInOrder() {
+        List<Integer> xs = newList(range(1, 100));
+        assertEquals(FunctionalM.groupBy(mod7, xs), parallel.groupBy(mod7, xs));
+        assertEquals(FunctionalM.groupBy(mod7, xs), parallel.groupBy(mod7, map(Function.<Integer>id(), range(1, 100))));
+        assertEquals(newList(1, 8, 15), parallel.groupBy(mod7, range(1, 20)).get(1));
+    }
+
+    @Test(timeout = 10000)
+    public void nestedReduceDoesNotDeadlock() {
+        ExecutorService single = Executors.newFixedThreadPool(1);
+        try {
+            final Parallel p = new Parallel(single, 2, 2);
+            Function1<Integer,Integer> sumUpTo = new Function1<Integer,Integer>() {
+                @Override
+                public Integer apply(Integer t) {
+                    return p.reduce(Monoids.intSum, range(1, t));
+                }
+            };
+            assertEquals((Integer)(1 + 3 + 6 + 10 + 15 + 21 + 28 + 36), p.reduce(Monoids.intSum, map(sumUpTo, newList(range(1, 8)))));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    private static final class FailsOn4 extends Function2<Integer,Integer,Integer> implements SemiGroup<Integer> {
+        @Override
+        public Integer apply(Integer t1, Integer t2) {
+            if (t2 == 4) {
+                throw new IllegalStateException();
+            }
+            return t1 + t2;
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void propagatesExceptionsFromOtherThreads() {
+        parallel.reduce(Monoids.of(new FailsOn4(), Function.of(0)), newList(1, 2, 3, 4));
+    }
+}
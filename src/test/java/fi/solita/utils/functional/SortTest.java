@@ -1,13 +1,21 @@
 package fi.solita.utils.functional;
 
 import static fi.solita.utils.functional.Collections.newList;
+import static fi.solita.utils.functional.Functional.headOption;
 import static fi.solita.utils.functional.Functional.map;
+import static fi.solita.utils.functional.Functional.max;
+import static fi.solita.utils.functional.Functional.min;
 import static fi.solita.utils.functional.Functional.range;
 import static fi.solita.utils.functional.Functional.sort;
 import static fi.solita.utils.functional.Functional.take;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.Closeable;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -37,6 +45,72 @@ public class SortTest {
         }
     }
     
+    Function1<Tuple2<Integer,Integer>,Integer> first = new Function1<Tuple2<Integer,Integer>,Integer>() {
+        @Override
+        public Integer apply(Tuple2<Integer,Integer> t) {
+            return t._1;
+        }
+    };
+    
+    @Test
+    public void takingFromSortedIsStable() {
+        List<Tuple2<Integer,Integer>> data = newList();
+        for (int i: range(0, 999)) {
+            data.add(Tuple.of((i * 7919) % 100, i));
+        }
+        List<Tuple2<Integer,Integer>> expected = new ArrayList<Tuple2<Integer,Integer>>(data);
+        java.util.Collections.sort(expected, Compare.by(first));
+        
+        for (int k: newList(0, 1, 2, 15, 16, 17, 500, 999, 1000, 5000)) {
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), newList(take(k, sort(Compare.by(first), data))));
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), newList(take(k, sort(Compare.by(first), map(Function.<Tuple2<Integer,Integer>>id(), data)))));
+        }
+        List<Tuple2<Integer,Integer>> iterated = new ArrayList<Tuple2<Integer,Integer>>();
+        for (Tuple2<Integer,Integer> t: sort(Compare.by(first), data)) {
+            iterated.add(t);
+        }
+        assertEquals(expected, iterated);
+        
+        assertEquals(Option.Some(expected.get(0)), headOption(sort(Compare.by(first), data)));
+        assertEquals((Integer)0, min(sort(Ordering.<Integer>Natural().reverse(), range(0, 10))).get());
+        assertEquals((Integer)10, max(sort(range(0, 10))).get());
+    }
+    
+    @Test
+    public void externalSortIsStable() throws Exception {
+        List<Tuple2<Integer,Integer>> data = newList();
+        for (int i: range(0, 999)) {
+            data.add(Tuple.of((i * 7919) % 100, i));
+        }
+        List<Tuple2<Integer,Integer>> expected = new ArrayList<Tuple2<Integer,Integer>>(data);
+        java.util.Collections.sort(expected, Compare.by(first));
+        
+        for (int maxInMemory: newList(1, 7, 100, 999, 1000)) {
+            assertEquals(expected, newList(sort(Compare.by(first), data, maxInMemory, Serializers.<Tuple2<Integer,Integer>>serializable())));
+            assertEquals(expected, newList(sort(Compare.by(first), map(Function.<Tuple2<Integer,Integer>>id(), data), maxInMemory, Serializers.<Tuple2<Integer,Integer>>serializable())));
+        }
+        assertEquals(newList("", "a", "b", "c"), newList(sort(newList("c", "a", "", "b"), 2, Serializers.strings)));
+        assertEquals(newList(1l, 2l, 3l), newList(take(3, sort(map(Function.<Long>id(), newList(5l, 3l, 1l, 4l, 2l)), 2, Serializers.longs))));
+        
+        int filesBefore = sortFiles();
+        Iterator<Tuple2<Integer,Integer>> unfinished = sort(Compare.by(first), data, 7, Serializers.<Tuple2<Integer,Integer>>serializable()).iterator();
+        assertEquals(expected.get(0), unfinished.next());
+        assertTrue(sortFiles() > filesBefore);
+        ((Closeable)unfinished).close();
+        assertFalse(unfinished.hasNext());
+        assertEquals(filesBefore, sortFiles());
+    }
+    
+    private static int sortFiles() {
+        int ret = 0;
+        for (String f: new File(System.getProperty("java.io.tmpdir")).list()) {
+            if (f.startsWith("functional-utils-sort")) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+    
     public void runSortOnce(int size, int firstToTake) {
         System.out.println("Testing for " + size + " elements");
         List<TestClass> data = newList(map(new Transformer<Integer, TestClass>() {